@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.benchmark;
+
+import java.util.Random;
+
+import blue.endless.splinter.data.GrowType;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+import blue.endless.splinter.widget.ContainerWidget;
+import blue.endless.splinter.widget.Widget;
+
+/**
+ * Builds the widget trees the layout benchmarks run on. Trees are generated from a fixed seed, so every fork and every
+ * run of a given shape lays out exactly the same tree.
+ */
+public class BenchmarkTrees {
+	public static final long SEED = 0x5EED_5EEDL;
+	
+	/**
+	 * Builds a tree of nested containers.
+	 * @param depth the number of levels of containers below the root. Zero builds a root holding only leaves.
+	 * @param fanOut the number of children each container holds
+	 * @param columns the number of grid columns children are spread across, filling each row before starting the next
+	 * @param spanPercent the percentage of children which span two cells along each axis
+	 * @param cellPadding the cell padding of every container
+	 * @param collapseMargins whether every container collapses margins
+	 * @param cached false to build containers which don't cache their solved layouts, so every layout solves them again
+	 */
+	public static ContainerWidget build(int depth, int fanOut, int columns, int spanPercent, int cellPadding, boolean collapseMargins, boolean cached) {
+		return build(new Random(SEED), depth, fanOut, columns, spanPercent, cellPadding, collapseMargins, cached);
+	}
+	
+	private static ContainerWidget build(Random random, int depth, int fanOut, int columns, int spanPercent, int cellPadding, boolean collapseMargins, boolean cached) {
+		ContainerWidget container = (cached) ? new ContainerWidget() : new UncachedContainerWidget();
+		container.getLayoutContainerMetrics().setCellPadding(cellPadding).setCollapseMargins(collapseMargins);
+		
+		for(int i=0; i<fanOut; i++) {
+			Widget child = (depth>0) ?
+					build(random, depth-1, fanOut, columns, spanPercent, cellPadding, collapseMargins, cached) :
+					new Widget();
+			container.add(child, i % columns, i / columns);
+			
+			OldLayoutElementMetrics metrics = container.getOldLayoutElementMetrics(child);
+			if (random.nextInt(100)<spanPercent) metrics.setCellsX(2);
+			if (random.nextInt(100)<spanPercent) metrics.setCellsY(2);
+			if (random.nextInt(3)==0) metrics.setFixedMinX(8 + random.nextInt(64));
+			if (random.nextInt(3)==0) metrics.setFixedMinY(8 + random.nextInt(32));
+			if (random.nextInt(4)==0) metrics.setRelativeMinX(5 + random.nextInt(20));
+			if (random.nextInt(4)==0) metrics.setHorizontalGrowType(GrowType.PACK);
+			if (random.nextInt(4)==0) metrics.setVerticalGrowType(GrowType.PACK);
+			if (random.nextInt(3)==0) metrics.setPadding(random.nextInt(6));
+		}
+		
+		return container;
+	}
+	
+	/** A ContainerWidget with no LayoutCache, for measuring the cost of actually solving layouts */
+	public static class UncachedContainerWidget extends ContainerWidget {
+		public UncachedContainerWidget() {
+			layoutCache = null;
+		}
+	}
+}
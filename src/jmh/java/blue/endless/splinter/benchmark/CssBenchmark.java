@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blue.endless.splinter.css.CssComponent;
+import blue.endless.splinter.css.CssParser;
+import blue.endless.splinter.css.CssToken;
+import blue.endless.splinter.css.CssTokenType;
+import blue.endless.splinter.css.CssTokenizer;
+
+/**
+ * Throughput of the CSS tokenizer and of the parser's normalization of tokens into components, over {@link CssCorpus}.
+ * 
+ * <p>Alongside ops/s, each benchmark reports how many tokens, components and input bytes it got through per second, so
+ * results over different inputs can be compared directly, and {@code allocatedPerInputByte}, the bytes it allocated per
+ * byte of input (see {@link InputAllocationProfiler}). The corpus is all ASCII, so its bytes and chars are the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CssBenchmark {
+	@Param({"tiny", "inline", "declarations", "stylesheet", "large"})
+	public String input;
+	
+	private String text;
+	private List<CssToken> tokens;
+	private int componentCount;
+	
+	/** Work done per second, reported next to each benchmark's score */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+		public long tokens;
+		public long components;
+		public long inputBytes;
+		
+		@Setup(Level.Iteration)
+		public void reset() {
+			tokens = 0;
+			components = 0;
+			inputBytes = 0;
+		}
+	}
+	
+	@Setup
+	public void setup() throws IOException {
+		text = CssCorpus.get(input);
+		
+		tokens = new ArrayList<>();
+		CssTokenizer tokenizer = new CssTokenizer(text);
+		CssToken cur = tokenizer.next();
+		while(cur.tokenType() != CssTokenType.EOF) {
+			tokens.add(cur);
+			cur = tokenizer.next();
+		}
+		
+		componentCount = countComponents(new CssParser(tokens).getComponents());
+	}
+	
+	private static int countComponents(List<CssComponent> components) {
+		int result = components.size();
+		for(CssComponent component : components) {
+			result += countComponents(component.children());
+		}
+		return result;
+	}
+	
+	/** Splits the input into tokens with {@link CssTokenizer#next()} */
+	@Benchmark
+	public int tokenize(Counters counters) throws IOException {
+		CssTokenizer tokenizer = new CssTokenizer(text);
+		int count = 0;
+		while(tokenizer.next().tokenType() != CssTokenType.EOF) count++;
+		
+		counters.tokens += count;
+		counters.inputBytes += text.length();
+		InputAllocationProfiler.addInput(text.length());
+		return count;
+	}
+	
+	/** Folds the already-tokenized input into components, nesting blocks and functions */
+	@Benchmark
+	public CssParser normalize(Counters counters) {
+		CssParser parser = new CssParser(tokens);
+		
+		counters.components += componentCount;
+		counters.inputBytes += text.length();
+		InputAllocationProfiler.addInput(text.length());
+		return parser;
+	}
+}
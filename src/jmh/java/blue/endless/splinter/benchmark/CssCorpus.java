@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generated CSS inputs for the CSS benchmarks, from single declarations up to a megabyte of stylesheet. Every input is
+ * built from a fixed seed, so it's the same in every fork and every run.
+ */
+public class CssCorpus {
+	/** Names of the inputs which are declaration lists, as found in inline style attributes, and can be given to Style.of */
+	public static final String[] DECLARATION_INPUTS = { "tiny", "inline", "declarations" };
+	
+	private static final String[] PROPERTIES = {
+			"width", "height", "min-width", "max-height", "margin", "padding", "color", "background", "font-family",
+			"border", "transform", "content", "opacity", "display", "grid-template-columns", "line-height"
+	};
+	
+	private static final String[] SELECTORS = {
+			"button", ".panel", "#sidebar", "ul > li", "a:hover", "input[type=\"text\"]", ".grid .cell", "h1 + p",
+			"&:focus", "& > .icon"
+	};
+	
+	/**
+	 * Gets an input by name. Every input ends in a semicolon or closing brace, since the tokenizer doesn't yet cope with
+	 * a number or dimension running right up to the end of its input.
+	 * <ul>
+	 *   <li>tiny: a single declaration
+	 *   <li>inline: a dozen declarations, about the size of a busy inline style
+	 *   <li>declarations: 64 KiB of declarations
+	 *   <li>stylesheet: a 16 KiB stylesheet
+	 *   <li>large: a 1 MiB stylesheet, with rules nested up to eight deep and many at-rules
+	 * </ul>
+	 */
+	public static String get(String name) {
+		return switch(name) {
+			case "tiny" -> "width: 10px;";
+			case "inline" -> "width: 120px; height: 50%; margin: 4px 8px 4px 8px; color: #336699; "
+					+ "background: url(\"images/bg.png\") no-repeat; font-family: \"Fira Sans\", sans-serif; "
+					+ "transform: translate(10px, calc(100% - 4em)) rotate(-1.5deg); opacity: 0.85; "
+					+ "border: 1px solid rgba(0, 0, 0, 0.25); content: \"\\201C\"; min-width: 2.5em; line-height: 1.2;";
+			case "declarations" -> declarations(new Random(1), 64*1024);
+			case "stylesheet" -> stylesheet(new Random(2), 16*1024, 3);
+			case "large" -> stylesheet(new Random(3), 1024*1024, 8);
+			default -> throw new IllegalArgumentException("Unknown CSS input \""+name+"\".");
+		};
+	}
+	
+	private static String declarations(Random random, int length) {
+		StringBuilder result = new StringBuilder(length + 256);
+		while(result.length()<length) {
+			appendDeclaration(random, result);
+			result.append(' ');
+		}
+		return result.toString();
+	}
+	
+	private static String stylesheet(Random random, int length, int maxDepth) {
+		StringBuilder result = new StringBuilder(length + 4096);
+		while(result.length()<length) {
+			switch(random.nextInt(10)) {
+				case 0 -> result.append("@import url(\"theme-").append(random.nextInt(100)).append(".css\") screen;\n");
+				case 1 -> {
+					result.append("@media (min-width: ").append(320 + random.nextInt(1600)).append("px) and (orientation: landscape) {\n");
+					appendRule(random, result, 1 + random.nextInt(maxDepth));
+					result.append("}\n");
+				}
+				case 2 -> {
+					result.append("@font-face { font-family: \"Face").append(random.nextInt(50))
+						.append("\"; src: url(fonts/face.woff2) format(\"woff2\"); }\n");
+				}
+				case 3 -> result.append("/* section ").append(random.nextInt(1000)).append(" */\n");
+				default -> appendRule(random, result, 1 + random.nextInt(maxDepth));
+			}
+		}
+		return result.toString();
+	}
+	
+	private static void appendRule(Random random, StringBuilder result, int depth) {
+		result.append(SELECTORS[random.nextInt(SELECTORS.length)]).append(" {\n");
+		int declarations = 1 + random.nextInt(6);
+		for(int i=0; i<declarations; i++) {
+			result.append('\t');
+			appendDeclaration(random, result);
+			result.append('\n');
+		}
+		if (depth>1) appendRule(random, result, depth-1);
+		result.append("}\n");
+	}
+	
+	private static void appendDeclaration(Random random, StringBuilder result) {
+		String property = PROPERTIES[random.nextInt(PROPERTIES.length)];
+		result.append(property).append(": ");
+		switch(random.nextInt(8)) {
+			case 0 -> result.append(random.nextInt(1000)).append("px");
+			case 1 -> result.append(random.nextInt(100)).append('%');
+			case 2 -> result.append('#').append(Integer.toHexString(0x100000 + random.nextInt(0xEFFFFF)));
+			case 3 -> result.append("calc(100% - ").append(random.nextInt(64)).append("px)");
+			case 4 -> result.append("rgba(").append(random.nextInt(256)).append(", ").append(random.nextInt(256))
+					.append(", ").append(random.nextInt(256)).append(", 0.").append(random.nextInt(10)).append(')');
+			case 5 -> result.append('"').append("label \\\"").append(random.nextInt(100)).append("\\\"").append('"');
+			case 6 -> result.append(random.nextInt(10)).append('.').append(random.nextInt(100)).append("em ")
+					.append(random.nextInt(20)).append("px");
+			default -> result.append("auto");
+		}
+		if (random.nextInt(16)==0) result.append(" !important");
+		result.append(';');
+	}
+}
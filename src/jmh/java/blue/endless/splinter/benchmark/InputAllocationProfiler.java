@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * A JMH profiler which reports how many bytes a parsing benchmark allocates per byte of input, as
+ * {@code allocatedPerInputByte} next to its score. Benchmarks opt in by calling {@link #addInput(int)} with the length
+ * of the input each invocation goes through; other benchmarks get no extra result.
+ * 
+ * <p>Allocation is read from {@link ThreadMXBean} for every thread at the start and end of each iteration, so the
+ * figure doesn't depend on the GC profiler, and is averaged over iterations like the score. JMH's own threads allocate
+ * next to nothing while an iteration runs. {@code gradlew jmh} attaches this profiler; when running JMH by hand, pass
+ * {@code -prof blue.endless.splinter.benchmark.InputAllocationProfiler}.
+ */
+public class InputAllocationProfiler implements InternalProfiler {
+	private static final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private static final LongAdder inputBytes = new LongAdder();
+	
+	private long allocatedAtStart;
+	
+	/** Counts bytes of input gone through by one benchmark invocation */
+	public static void addInput(int bytes) {
+		inputBytes.add(bytes);
+	}
+	
+	@Override
+	public String getDescription() {
+		return "Bytes allocated per byte of input, for benchmarks which report their input";
+	}
+	
+	@Override
+	public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+		inputBytes.reset();
+		allocatedAtStart = allocatedBytes();
+	}
+	
+	@Override
+	public Collection<? extends Result<?>> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+		long allocated = allocatedBytes() - allocatedAtStart;
+		long input = inputBytes.sum();
+		if (input==0) return Collections.emptyList();
+		return Collections.singletonList(new ScalarResult("allocatedPerInputByte", allocated / (double) input, "B/B", AggregationPolicy.AVG));
+	}
+	
+	/** Sums the bytes every live thread has allocated */
+	private static long allocatedBytes() {
+		long total = 0;
+		for(long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			if (allocated>0) total += allocated;
+		}
+		return total;
+	}
+}
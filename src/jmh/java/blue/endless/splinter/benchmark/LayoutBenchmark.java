@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blue.endless.splinter.Layout;
+import blue.endless.splinter.LayoutContext;
+import blue.endless.splinter.widget.ContainerWidget;
+
+/**
+ * Throughput of {@link Layout} over generated trees. Run with {@code gradlew jmh}, which also attaches the GC profiler,
+ * so that each result comes with its allocation rate ({@code gc.alloc.rate.norm} is bytes per layout).
+ * 
+ * <p>Every combination of the parameters below is run by default. Narrow them down with JMH's own options, for example
+ * {@code gradlew jmh -PjmhArgs="LayoutBenchmark.layout -p depth=2 -p fanOut=12"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutBenchmark {
+	/** Number of distinct sizes {@link #layout()} cycles through. Must be a power of two. */
+	private static final int SIZES = 64;
+	
+	@Param({"1", "2"})
+	public int depth;
+	
+	@Param({"4", "12"})
+	public int fanOut;
+	
+	/** Columns of the grid each container spreads its children across. 1 makes every container a single column. */
+	@Param({"1", "4"})
+	public int columns;
+	
+	/** Percentage of children which span two cells along each axis */
+	@Param({"0", "25"})
+	public int spanPercent;
+	
+	@Param({"0", "4"})
+	public int cellPadding;
+	
+	@Param({"false", "true"})
+	public boolean collapseMargins;
+	
+	private ContainerWidget uncachedRoot;
+	private ContainerWidget cachedRoot;
+	private final LayoutContext context = new LayoutContext();
+	private int step = 0;
+	
+	@Setup
+	public void setup() {
+		uncachedRoot = BenchmarkTrees.build(depth, fanOut, columns, spanPercent, cellPadding, collapseMargins, false);
+		cachedRoot = BenchmarkTrees.build(depth, fanOut, columns, spanPercent, cellPadding, collapseMargins, true);
+		Layout.layout(context, cachedRoot, 0, 0, 1280, 720, false);
+	}
+	
+	/** Lays out a tree which caches nothing, at a different size each time, so that every container is solved */
+	@Benchmark
+	public ContainerWidget layout() {
+		int i = step++ & (SIZES-1);
+		Layout.layout(context, uncachedRoot, 0, 0, 1024 + i*4, 640 + i*3, false);
+		return uncachedRoot;
+	}
+	
+	/** Relayout of a tree which hasn't changed since it was last laid out, which should find nothing to do */
+	@Benchmark
+	public ContainerWidget relayoutUnchanged() {
+		Layout.relayout(context, cachedRoot, 0, 0, 1280, 720, false);
+		return cachedRoot;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blue.endless.splinter.css.CssParseError;
+import blue.endless.splinter.css.PropertyKeys;
+import blue.endless.splinter.css.Style;
+import blue.endless.splinter.data.Size;
+
+/**
+ * Latency of parsing inline styles with {@link Style#of(String)}, from the string all the way to a Style, and of looking
+ * up and deserializing a property from an already-parsed Style. {@link #of()} also reports
+ * {@code allocatedPerInputByte}, the bytes it allocated per byte of input (see {@link InputAllocationProfiler}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StyleBenchmark {
+	/** Any of {@link CssCorpus#DECLARATION_INPUTS} */
+	@Param({"tiny", "inline", "declarations"})
+	public String input;
+	
+	private String text;
+	private Style style;
+	
+	@Setup
+	public void setup() throws CssParseError {
+		text = CssCorpus.get(input);
+		style = Style.of(text);
+	}
+	
+	@Benchmark
+	public Style of() throws CssParseError {
+		InputAllocationProfiler.addInput(text.length());
+		return Style.of(text);
+	}
+	
+	@Benchmark
+	public Optional<Size> getWidth() {
+		return style.get(PropertyKeys.WIDTH);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.Arrays;
+
+/**
+ * A bitmap of which cells in a grid are already taken, used to remove colliding elements. Each row is stored as a run
+ * of long words, one bit per cell, so a span of cells is tested and marked a word at a time rather than a cell at a
+ * time. The bitmap is kept between uses and only grows.
+ */
+final class CellOccupancy {
+	private long[] words = new long[16];
+	private int wordsPerRow = 1;
+	private int width = 1;
+	private int height = 1;
+	
+	/** Clears the bitmap and sizes it for a grid of the given dimensions */
+	public void reset(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = (width + 63) >>> 6;
+		int needed = wordsPerRow * height;
+		if (needed>words.length) {
+			words = new long[Math.max(needed, words.length*2)];
+		} else {
+			Arrays.fill(words, 0, needed, 0L);
+		}
+	}
+	
+	/**
+	 * Marks a rectangle of cells as taken, unless any cell in it is already taken. Parts of the rectangle outside the
+	 * grid are ignored.
+	 * @return true if the cells were free and are now marked, or false if the rectangle collides with cells that were
+	 *         already taken, in which case nothing is marked.
+	 */
+	public boolean claim(int x, int y, int cellsX, int cellsY) {
+		int x0 = Math.max(x, 0);
+		int y0 = Math.max(y, 0);
+		int x1 = Math.min(x + cellsX, width);
+		int y1 = Math.min(y + cellsY, height);
+		if (x0>=x1 || y0>=y1) return true;
+		
+		int firstWord = x0 >>> 6;
+		int lastWord = (x1-1) >>> 6;
+		long firstMask = -1L << (x0 & 63);
+		long lastMask = -1L >>> (63 - ((x1-1) & 63));
+		if (firstWord==lastWord) {
+			firstMask &= lastMask;
+			lastMask = firstMask;
+		}
+		
+		for(int row=y0; row<y1; row++) {
+			int base = row*wordsPerRow;
+			if ((words[base+firstWord] & firstMask) != 0) return false;
+			for(int i=firstWord+1; i<lastWord; i++) {
+				if (words[base+i] != 0) return false;
+			}
+			if ((words[base+lastWord] & lastMask) != 0) return false;
+		}
+		
+		for(int row=y0; row<y1; row++) {
+			int base = row*wordsPerRow;
+			words[base+firstWord] |= firstMask;
+			for(int i=firstWord+1; i<lastWord; i++) {
+				words[base+i] = -1L;
+			}
+			words[base+lastWord] |= lastMask;
+		}
+		
+		return true;
+	}
+}
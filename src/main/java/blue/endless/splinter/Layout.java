@@ -24,15 +24,16 @@
 
 package blue.endless.splinter;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
+import java.util.RandomAccess;
 
+import blue.endless.splinter.data.Alignment;
+import blue.endless.splinter.data.Axis;
 import blue.endless.splinter.data.GrowType;
+import blue.endless.splinter.data.Rect;
 import blue.endless.splinter.metrics.GridMetrics;
 import blue.endless.splinter.metrics.LayoutContainerMetrics;
+import blue.endless.splinter.metrics.LayoutElementAxisMetrics;
 import blue.endless.splinter.metrics.OldLayoutElementMetrics;
 
 public class Layout {
@@ -40,278 +41,559 @@ public class Layout {
 	 * Sets layout parameters for each component and notifies the container of its arbitrated geometry. The container and its
 	 * components will be repositioned to fit in (x,y)..(x+width-1,y+height-1), inclusive. If any of the layoutChildren are
 	 * themselves LayoutContainers, they will be recursively solved.
+	 * 
+	 * <p>This allocates a new {@link LayoutContext} for every call. Anything which lays out every frame should hold a
+	 * context and use {@link #layout(LayoutContext, LayoutContainer, int, int, int, int, boolean)} instead.
 	 * @param container The container to layout.
 	 * @param x The lowest X coordinate of valid layout space.
 	 * @param y The lowest Y coordinate of valid layout space.
 	 * @param width The width of valid layout space.
 	 * @param height The height of valid layout space.
-	 * @param removeCollisions If true, and elements are found to overlap, arbitrary elements will be removed from the
-	 *        generated layout to prevent the overlap.
+	 * @param removeCollisions If true, and elements are found to overlap, whichever element was added to its container
+	 *        later will be removed from the generated layout to prevent the overlap.
 	 */
 	public static void layout(LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions) {
-		//Compile the LayoutData for this container
-		Map<LayoutElement, OldLayoutElementMetrics> elementData = new HashMap<>();
-		GridMetrics gridMetrics = new GridMetrics(); //TODO: Could we keep this as a static field, and clear and reuse this between layouts?
-		LayoutContainerMetrics containerMetrics = container.getLayoutContainerMetrics();
+		layout(new LayoutContext(), container, x, y, width, height, removeCollisions);
+	}
+	
+	/**
+	 * Works like {@link #layout(LayoutContainer, int, int, int, int, boolean)}, but borrows all its working memory from
+	 * the provided LayoutContext instead of allocating it. Once the context has seen a tree of a given shape, laying it
+	 * out again allocates nothing.
+	 * @param context Scratch space for this layout. Must not be in use by any other layout at the same time.
+	 * @param container The container to layout.
+	 * @param x The lowest X coordinate of valid layout space.
+	 * @param y The lowest Y coordinate of valid layout space.
+	 * @param width The width of valid layout space.
+	 * @param height The height of valid layout space.
+	 * @param removeCollisions If true, and elements are found to overlap, whichever element was added to its container
+	 *        later will be removed from the generated layout to prevent the overlap.
+	 */
+	public static void layout(LayoutContext context, LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions) {
+		measure(context, container);
+		layout(context, container, x, y, width, height, removeCollisions, false, 0);
+	}
+	
+	/**
+	 * Incrementally re-solves the layout of a container tree. Works like {@link #layout(LayoutContainer, int, int, int, int, boolean)},
+	 * except that any container which reports through {@link LayoutContainer#needsLayout(int, int, int, int, boolean)} that
+	 * nothing has changed since it was last solved at these bounds is skipped, along with its entire subtree. The
+	 * previously-assigned GridMetrics and child geometry of skipped containers are left in place.
+	 *
+	 * <p>This is intended to be called every frame; when nothing has changed, it costs one needsLayout call, plus the
+	 * {@link LayoutContext} this overload allocates. Callers which relayout every frame should hold a context and use
+	 * {@link #relayout(LayoutContext, LayoutContainer, int, int, int, int, boolean)}.
+	 * @param container The container to layout.
+	 * @param x The lowest X coordinate of valid layout space.
+	 * @param y The lowest Y coordinate of valid layout space.
+	 * @param width The width of valid layout space.
+	 * @param height The height of valid layout space.
+	 * @param removeCollisions If true, and elements are found to overlap, whichever element was added to its container
+	 *        later will be removed from the generated layout to prevent the overlap.
+	 */
+	public static void relayout(LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions) {
+		relayout(new LayoutContext(), container, x, y, width, height, removeCollisions);
+	}
+	
+	/**
+	 * Works like {@link #relayout(LayoutContainer, int, int, int, int, boolean)}, but borrows all its working memory
+	 * from the provided LayoutContext instead of allocating it.
+	 * @param context Scratch space for this layout. Must not be in use by any other layout at the same time.
+	 * @param container The container to layout.
+	 * @param x The lowest X coordinate of valid layout space.
+	 * @param y The lowest Y coordinate of valid layout space.
+	 * @param width The width of valid layout space.
+	 * @param height The height of valid layout space.
+	 * @param removeCollisions If true, and elements are found to overlap, whichever element was added to its container
+	 *        later will be removed from the generated layout to prevent the overlap.
+	 */
+	public static void relayout(LayoutContext context, LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions) {
+		measure(context, container);
+		layout(context, container, x, y, width, height, removeCollisions, true, 0);
+	}
+	
+	/**
+	 * Works out the natural size of every container in a tree, from the bottom up, and notifies each container through
+	 * setNaturalWidth and setNaturalHeight. A container's natural size is the smallest size its grid can be solved at
+	 * without squeezing any child below its fixed minimum or natural size. Layout calls this before laying a tree out,
+	 * and natural sizes then act as minimum sizes for the cells containing them.
+	 * 
+	 * <p>Containers for which {@link LayoutContainer#needsMeasure()} returns false keep their previous natural size, and
+	 * their children aren't visited.
+	 * @param context Scratch space for the measurement. Must not be in use by any other layout at the same time.
+	 * @param container The root of the tree to measure.
+	 */
+	public static void measure(LayoutContext context, LayoutContainer container) {
+		if (!container.needsMeasure()) return;
 		
-		for(LayoutElement elem : container.getLayoutChildren()) {
-			OldLayoutElementMetrics metrics = container.getOldLayoutElementMetrics(elem);
-			elementData.put(elem, metrics);
-			gridMetrics.ensureSpaceFor(metrics.cellX, metrics.cellY);
+		//Children first, so that their natural sizes are known when this container's grid is built
+		Iterable<? extends LayoutElement> children = container.getLayoutChildren();
+		if (children instanceof List<? extends LayoutElement> list && children instanceof RandomAccess) {
+			for(int i=0; i<list.size(); i++) {
+				if (list.get(i) instanceof LayoutContainer child) measure(context, child);
+			}
+		} else {
+			for(LayoutElement elem : children) {
+				if (elem instanceof LayoutContainer child) measure(context, child);
+			}
 		}
-		gridMetrics.addContainerMetrics(containerMetrics);
 		
-		//We need to know how big the grid is before we size the rows and columns, so we know where to allocate margins
-		for(OldLayoutElementMetrics metrics : elementData.values()) {
-			gridMetrics.addElementMetrics(metrics);
+		LayoutStrategy strategy = container.getLayoutStrategy();
+		if (strategy!=null) {
+			int[] size = context.placement;
+			strategy.measure(container, size);
+			container.setNaturalWidth(size[0]);
+			container.setNaturalHeight(size[1]);
+			container.setMeasureClean();
+			return;
 		}
 		
-		Set<LayoutElement> removed = new HashSet<>();
+		GridMetrics gridMetrics = context.measureGrid;
+		gridMetrics.clear();
+		LayoutContainerMetrics containerMetrics = container.getLayoutContainerMetrics();
+		context.collectElements(container, null);
+		Axis stackAxis = LinearLayout.getStackAxis(context);
+		if (stackAxis!=null) {
+			LinearLayout.buildGrid(context, gridMetrics, containerMetrics, stackAxis, null);
+		} else {
+			addElements(context, container, gridMetrics, false, null);
+		}
+		context.clearElements();
 		
-		/*
-		if (removeCollisions) {
-			LayoutElement[] collisionMap = new LayoutElement[gridMetrics.width*gridMetrics.height];
-			for(Map.Entry<LayoutElement, LayoutElementMetrics> entry : elementData.entrySet()) {
-				LayoutElement elem = entry.getKey();
-				LayoutElementMetrics entryData = entry.getValue();
-				
-				for(int yi=0; yi<entryData.cellsY; yi++) {
-					int elemY = yi + entryData.cellY;
-					for(int xi=0; xi<entryData.cellsX; xi++) {
-						int elemX = xi + entryData.cellX;
-						
-						int index = (elemY*gridMetrics.width+elemX) % collisionMap.length;
-						LayoutElement existing = collisionMap[index];
-						if (existing!=null) {
-							removed.add(elem);
-						} else {
-							collisionMap[index] = elem;
-						}
-					}
-				}
-			}
-			for(LayoutElement elem : removed) {
-				elementData.remove(elem);
-			}
-		}*/
+		//Solve against zero space, so that relative sizes and leftover space don't contribute anything
+		setInitial(gridMetrics.xMetrics, gridMetrics.xMetrics.count, 0, containerMetrics);
+		setInitial(gridMetrics.yMetrics, gridMetrics.yMetrics.count, 0, containerMetrics);
+		context.spanSolver.solve(gridMetrics.xMetrics, gridMetrics.xMetrics.count, gridMetrics.xConstraints, 0, containerMetrics);
+		context.spanSolver.solve(gridMetrics.yMetrics, gridMetrics.yMetrics.count, gridMetrics.yConstraints, 0, containerMetrics);
 		
-		//Set initial sizes
-		setInitial(gridMetrics.xMetrics, gridMetrics.width, width, containerMetrics);
-		setInitial(gridMetrics.yMetrics, gridMetrics.height, height, containerMetrics);
+		int naturalWidth = 0;
+		for(int i=0; i<gridMetrics.xMetrics.count; i++) naturalWidth += gridMetrics.xMetrics.size[i];
+		int naturalHeight = 0;
+		for(int i=0; i<gridMetrics.yMetrics.count; i++) naturalHeight += gridMetrics.yMetrics.size[i];
 		
-		//Stretch multi-column/multi-row constraints
-		stretchConstraints(gridMetrics.xMetrics, gridMetrics.xConstraints, width, containerMetrics);
-		stretchConstraints(gridMetrics.yMetrics, gridMetrics.yConstraints, height, containerMetrics);
+		container.setNaturalWidth(naturalWidth);
+		container.setNaturalHeight(naturalHeight);
+		container.setMeasureClean();
+	}
+	
+	/**
+	 * Gets the natural size of a child element along one axis: the larger of the size the element reports for itself
+	 * and the natural size its container holds for it.
+	 */
+	static int getNaturalSize(LayoutContainer container, LayoutElement elem, Axis axis) {
+		int result = (axis==Axis.HORIZONTAL) ? elem.getNaturalWidth() : elem.getNaturalHeight();
+		LayoutElementAxisMetrics axisMetrics = container.getChildMetrics(elem, axis);
+		if (axisMetrics!=null) result = Math.max(result, axisMetrics.getNaturalSize());
+		return result;
+	}
+	
+	static void layout(LayoutContext context, LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions, boolean incremental, int depth) {
+		if (incremental && !container.needsLayout(x, y, width, height, removeCollisions)) return;
 		
-		//Preferentially grow elements that don't have a specific size declared
-		stretchUnspecified(gridMetrics.xMetrics, gridMetrics.width, width);
-		stretchUnspecified(gridMetrics.yMetrics, gridMetrics.height, height);
+		LayoutCache cache = container.getLayoutCache();
+		LayoutCache.Entry result;
+		if (cache!=null) {
+			int version = container.getLayoutVersion();
+			result = cache.get(width, height, version, removeCollisions);
+			if (result==null) {
+				//If only one dimension changed since a cached layout, the other axis can be copied from it
+				LayoutCache.Entry donor = cache.getAxisDonor(width, height, version, removeCollisions);
+				Axis reusedAxis = null;
+				if (donor!=null) reusedAxis = (donor.isSolvedAt(Axis.VERTICAL, height)) ? Axis.VERTICAL : Axis.HORIZONTAL;
+				result = cache.claim(width, height, version, removeCollisions, donor);
+				if (result==donor) donor = null; //A cache with room for only one layout can't keep it
+				solve(context, container, width, height, removeCollisions, result, donor, reusedAxis, depth);
+			}
+		} else {
+			result = context.obtainResult(depth);
+			solve(context, container, width, height, removeCollisions, result, null, null, depth);
+		}
 		
+		Rect viewport = container.getViewport();
 		
-		//Stretch all elements equally
-		int leftoverX = width;
-		for(int i=0; i<gridMetrics.width; i++) {
-			leftoverX -= gridMetrics.getCellWidth(i);
+		//Child containers can be laid out on other threads once this container has notified them of their geometry
+		boolean fork = viewport==null && context.parallel!=null && context.parallel.shouldFork(result);
+		
+		//Notify container of each component's geometry
+		container.setGridMetrics(result.getGridMetrics());
+		if (viewport==null) {
+			for(int i=0; i<result.placedCount(); i++) {
+				place(context, container, result, i, x, y, removeCollisions, incremental, depth, !fork);
+			}
+		} else {
+			//Only visit children that are at least partly inside the viewport, starting from the topmost one
+			int viewportBottom = viewport.bottom();
+			for(int pos=result.findPlacedFrom(viewport.y()); pos<result.placedCount(); pos++) {
+				int i = result.getPlacedByTop(pos);
+				if (result.getY(i)>=viewportBottom) break;
+				if (!viewport.intersects(result.getX(i), result.getY(i), result.getWidth(i), result.getHeight(i))) continue;
+				place(context, container, result, i, x, y, removeCollisions, incremental, depth, true);
+			}
 		}
-		int leftoverPerColumn = leftoverX / gridMetrics.width;
-		for(int i=0; i<gridMetrics.width; i++) {
-			gridMetrics.xMetrics[i].size += leftoverPerColumn;
+		
+		for(int i=result.placedCount(); i<result.size(); i++) {
+			//TODO: Do we want these values onscreen? Do we want to notify a component explicitly that layout has elected to zero it and hide it?
+			setLayoutValues(context, container, result.getElement(i), 0, 0, 0, 0);
 		}
 		
-		int leftoverY = height;
-		for(int i=0; i<gridMetrics.height; i++) {
-			leftoverY -= gridMetrics.getCellHeight(i);
+		if (fork) context.parallel.layoutChildren(result, x, y, removeCollisions, incremental);
+		
+		container.setLayoutClean(x, y, width, height, removeCollisions);
+	}
+	
+	/**
+	 * Hands the index'th child of result its geometry, offset by the container's position, and if requested, lays out
+	 * the child's own children.
+	 */
+	private static void place(LayoutContext context, LayoutContainer container, LayoutCache.Entry result, int i, int x, int y, boolean removeCollisions, boolean incremental, int depth, boolean recurse) {
+		LayoutElement elem = result.getElement(i);
+		int elemX = x + result.getX(i);
+		int elemY = y + result.getY(i);
+		int elemWidth = result.getWidth(i);
+		int elemHeight = result.getHeight(i);
+		
+		setLayoutValues(context, container, elem, elemX, elemY, elemWidth, elemHeight);
+		if (recurse && elem instanceof LayoutContainer) {
+			layout(context, (LayoutContainer)elem, elemX, elemY, elemWidth, elemHeight, removeCollisions, incremental, depth+1);
+		}
+	}
+	
+	/** Hands elem its geometry, recording the change if the context has a change set and the geometry is different */
+	private static void setLayoutValues(LayoutContext context, LayoutContainer container, LayoutElement elem, int x, int y, int width, int height) {
+		LayoutChangeSet changes = context.changes;
+		if (changes!=null) {
+			int[] old = context.oldBounds;
+			if (!container.getLayoutValues(elem, old)) {
+				changes.add(elem, 0, 0, 0, 0, x, y, width, height);
+			} else if (old[0]!=x || old[1]!=y || old[2]!=width || old[3]!=height) {
+				changes.add(elem, old[0], old[1], old[2], old[3], x, y, width, height);
+			}
 		}
-		int leftoverPerRow = leftoverY / gridMetrics.height;
-		for(int i=0; i<gridMetrics.height; i++) {
-			gridMetrics.yMetrics[i].size += leftoverPerRow;
+		container.setLayoutValues(elem, x, y, width, height);
+	}
+	
+	/**
+	 * Solves one container's grid at the given size, without recursing, and records the GridMetrics and the geometry of
+	 * each child (relative to the container's origin) into result.
+	 * 
+	 * <p>The two axes are solved independently of each other. If donor is non-null, it must be a completed layout of the
+	 * same container, at the same layout version and collision setting, and already solved at the same size along
+	 * reusedAxis. That axis is then copied from donor instead of being solved again.
+	 * 
+	 * <p>Containers with a {@link LayoutStrategy} are solved by it instead, and their GridMetrics are left empty.
+	 * 
+	 * <p>If the context has a {@link LayoutListener}, each phase is timed and the listener is told about the container
+	 * once it's solved. Otherwise the clock is never read.
+	 */
+	private static void solve(LayoutContext context, LayoutContainer container, int width, int height, boolean removeCollisions, LayoutCache.Entry result, LayoutCache.Entry donor, Axis reusedAxis, int depth) {
+		LayoutStrategy strategy = container.getLayoutStrategy();
+		if (strategy!=null) {
+			strategy.solve(container, width, height, result);
+			result.complete();
+			return;
 		}
 		
+		if (donor==null) reusedAxis = null;
 		
-		gridMetrics.recalcStarts();
+		LayoutListener listener = context.listener;
+		LayoutTimings timings = null;
+		long start = 0;
+		if (listener!=null) {
+			timings = context.timings;
+			timings.reset(depth, reusedAxis);
+			start = System.nanoTime();
+		}
 		
-		stretchEnd(gridMetrics.xMetrics, gridMetrics.width, width);
-		stretchEnd(gridMetrics.yMetrics, gridMetrics.height, height);
-		/*
-		//If there's any shortfall left, add it to the last row or column.
-		GridMetrics.Element rightmost = gridMetrics.getColumns()[gridMetrics.getWidth()-1];
-		if (rightmost.location+rightmost.size < width) {
-			rightmost.size = (width)-rightmost.location;
+		//Compile the LayoutData for this container. Single rows and columns can skip most of the grid bookkeeping.
+		GridMetrics gridMetrics = result.getGridMetrics();
+		LayoutContainerMetrics containerMetrics = container.getLayoutContainerMetrics();
+		context.collectElements(container, reusedAxis);
+		Axis stackAxis = LinearLayout.getStackAxis(context);
+		if (stackAxis!=null) {
+			LinearLayout.buildGrid(context, gridMetrics, containerMetrics, stackAxis, reusedAxis);
+		} else {
+			addElements(context, container, gridMetrics, removeCollisions, reusedAxis);
 		}
 		
-		GridMetrics.Element bottommost = gridMetrics.getRows()[gridMetrics.getHeight()-1];
-		if (bottommost.location+bottommost.size < height) {
-			bottommost.size = (height)-bottommost.location;
-		}*/
+		if (timings!=null) timings.lap(LayoutTimings.Phase.COLLECT, start);
+		
+		if (reusedAxis!=Axis.HORIZONTAL) solveAxis(context, gridMetrics, Axis.HORIZONTAL, width, containerMetrics, timings);
+		if (reusedAxis!=Axis.VERTICAL) solveAxis(context, gridMetrics, Axis.VERTICAL, height, containerMetrics, timings);
+		if (timings!=null) start = System.nanoTime();
+		if (reusedAxis!=null) {
+			gridMetrics.copyAxis(donor.getGridMetrics(), reusedAxis);
+			if (timings!=null) start = timings.lap(LayoutTimings.Phase.COLLECT, start);
+		}
 		
-		container.setGridMetrics(gridMetrics);
 		//if (gridMetrics.height>3) System.out.println(gridMetrics);
 		
-		//Notify container of each component's geometry
-		for(Map.Entry<LayoutElement, OldLayoutElementMetrics> entry : elementData.entrySet()) {
-			LayoutElement elem = entry.getKey();
-			OldLayoutElementMetrics metrics = entry.getValue();
-			if (metrics.cellX<0 || metrics.cellY<0) {
+		//Work out each component's geometry
+		int[] placement = context.placement;
+		int placed = 0;
+		for(int i=0; i<context.elementCount; i++) {
+			LayoutElement elem = context.elements[i];
+			OldLayoutElementMetrics metrics = context.metrics[i];
+			if (context.removed[i]) continue;
+			if (metrics.getCellX()<0 || metrics.getCellY()<0) {
 				//TODO: Do we want these values onscreen? Do we want to notify a component explicitly that layout has elected to zero it and hide it?
-				removed.add(elem);
+				context.removed[i] = true;
+				continue;
+			}
+			
+			int elemX;
+			int elemWidth;
+			if (reusedAxis==Axis.HORIZONTAL) {
+				elemX = donor.getX(placed);
+				elemWidth = donor.getWidth(placed);
 			} else {
-				//This merely defines the available space within which the component may be placed. Here, maximum values can be considered and the element can be aligned against its cell.
-				int cellX = x + gridMetrics.getCellLeft(metrics.cellX);
-				int cellY = y + gridMetrics.getCellTop(metrics.cellY);
-				int cellWidth = 0;
-				int cellHeight = 0;
-				
-				int lastCellXIndex = metrics.cellX + (metrics.cellsX-1);
-				int lastCellXEnd = gridMetrics.getCellLeft(lastCellXIndex) + gridMetrics.getCellWidth(lastCellXIndex);
-				cellWidth = lastCellXEnd - cellX;
-				
-				int lastCellYIndex = metrics.cellY + (metrics.cellsY-1);
-				int lastCellYEnd = gridMetrics.getCellTop(lastCellYIndex) + gridMetrics.getCellHeight(lastCellYIndex);
-				cellHeight = lastCellYEnd - cellY;
-				
-				int paddingLeft = containerMetrics.getCellPadding(); if (metrics.cellX>0) paddingLeft /= 2;
-				int paddingTop = containerMetrics.getCellPadding(); if (metrics.cellY>0) paddingTop /= 2;
-				int paddingRight = containerMetrics.getCellPadding(); if (metrics.cellX+(metrics.cellsX-1)<gridMetrics.width-1) paddingRight /= 2;
-				int paddingBottom = containerMetrics.getCellPadding(); if (metrics.cellY+(metrics.cellsY-1)<gridMetrics.height-1) paddingBottom /= 2;
-				
-				if (containerMetrics.getCollapseMargins()) {
-					paddingLeft = Math.max(metrics.paddingLeft, paddingLeft);
-					paddingTop = Math.max(metrics.paddingTop, paddingTop);
-					paddingRight = Math.max(metrics.paddingRight, paddingRight);
-					paddingBottom = Math.max(metrics.paddingBottom, paddingBottom);
+				if (stackAxis!=null) {
+					LinearLayout.placeAxis(gridMetrics, containerMetrics, metrics, Axis.HORIZONTAL, context.naturalWidths[i], width, placement);
 				} else {
-					paddingLeft += metrics.paddingLeft;
-					paddingTop += metrics.paddingTop;
-					paddingRight += metrics.paddingRight;
-					paddingBottom += metrics.paddingBottom;
-				}
-				
-				//These ones are actually the maximum-sized element within the cell
-				int elemX = cellX + paddingLeft;
-				int elemY = cellY + paddingTop;
-				int elemWidth = cellWidth - (paddingLeft+paddingRight);
-				int elemHeight = cellHeight - (paddingTop+paddingBottom);
-				
-				if (metrics.horizontalGrowType==GrowType.PACK) {
-					int preferredWidth = Math.max(metrics.fixedMinX, (int)((metrics.relativeMinX/100.0)*width));
-					if (preferredWidth<elemWidth) {
-						elemWidth = preferredWidth;
-						switch (metrics.horizontalAlignment) {
-						case CENTER: {
-							int offset = (cellWidth/2) - (preferredWidth/2);
-							elemX += offset;
-							break;
-						}
-						case TRAILING: {
-							int offset = (cellWidth-(paddingLeft+paddingRight)) - preferredWidth;
-							elemX += offset;
-							break;
-						}
-						case LEADING:
-						default: //Do nothing
-							break;
-						}
-					}
-				}
-				
-				if (metrics.verticalGrowType==GrowType.PACK) {
-					int preferredHeight = Math.max(metrics.fixedMinY, (int)((metrics.relativeMinY/100.0)*height));
-					if (preferredHeight<elemHeight) {
-						elemHeight = preferredHeight;
-						switch (metrics.verticalAlignment) {
-						case CENTER: {
-							int offset = (cellHeight/2) - (preferredHeight/2);
-							elemY += offset;
-							break;
-						}
-						case TRAILING: {
-							int offset = (cellHeight-(paddingTop+paddingBottom)) - preferredHeight;
-							elemY += offset;
-							break;
-						}
-						case LEADING:
-						default: //Do nothing
-							break;
-						}
-					}
+					placeAxis(gridMetrics, containerMetrics, metrics, Axis.HORIZONTAL, context.naturalWidths[i], width, placement);
 				}
-				
-				container.setLayoutValues(elem, elemX, elemY, elemWidth, elemHeight);
-				if (elem instanceof LayoutContainer) {
-					layout((LayoutContainer)elem, elemX, elemY, elemWidth, elemHeight, removeCollisions);
+				elemX = placement[0];
+				elemWidth = placement[1];
+			}
+			
+			int elemY;
+			int elemHeight;
+			if (reusedAxis==Axis.VERTICAL) {
+				elemY = donor.getY(placed);
+				elemHeight = donor.getHeight(placed);
+			} else {
+				if (stackAxis!=null) {
+					LinearLayout.placeAxis(gridMetrics, containerMetrics, metrics, Axis.VERTICAL, context.naturalHeights[i], height, placement);
+				} else {
+					placeAxis(gridMetrics, containerMetrics, metrics, Axis.VERTICAL, context.naturalHeights[i], height, placement);
 				}
+				elemY = placement[0];
+				elemHeight = placement[1];
 			}
+			
+			result.addPlaced(elem, elemX, elemY, elemWidth, elemHeight);
+			placed++;
 		}
 		
-		for(LayoutElement elem : removed) {
-			//TODO: Do we want these values onscreen? Do we want to notify a component explicitly that layout has elected to zero it and hide it?
-			container.setLayoutValues(elem, 0, 0, 0, 0);
+		for(int i=0; i<context.elementCount; i++) {
+			if (context.removed[i]) result.addRemoved(context.elements[i]);
 		}
+		
+		if (timings!=null) {
+			timings.lap(LayoutTimings.Phase.PLACEMENT, start);
+			timings.setGrid(context.elementCount, gridMetrics.width, gridMetrics.height, gridMetrics.xConstraints.size(), gridMetrics.yConstraints.size());
+		}
+		
+		context.clearElements();
+		result.complete();
+		
+		if (listener!=null) listener.containerSolved(container, timings);
 	}
 	
-	private static void setInitial(GridMetrics.Element[] elements, int num, int totalSize, LayoutContainerMetrics containerMetrics) {
-		for(int i=0; i<num; i++) {
-			GridMetrics.Element elem = elements[i];
-			int resolvedFixed = (elem.fixedSize>0) ? elem.fixedSize+(containerMetrics.getCellPadding()*2) : 0;
-			int resolvedRelative = (elem.relativeSize>0) ? (int)((elem.relativeSize/100.0)*totalSize)+(containerMetrics.getCellPadding()*2) : 0;
-			elem.size = Math.max(resolvedFixed, resolvedRelative);
+	/**
+	 * Sizes and positions the columns or rows of a grid whose element metrics have already been added.
+	 */
+	static void solveAxis(LayoutContext context, GridMetrics gridMetrics, Axis axis, int totalSize, LayoutContainerMetrics containerMetrics) {
+		solveAxis(context, gridMetrics, axis, totalSize, containerMetrics, null);
+	}
+	
+	/**
+	 * Sizes and positions the columns or rows of a grid, adding the time each phase takes to timings if it's non-null.
+	 */
+	private static void solveAxis(LayoutContext context, GridMetrics gridMetrics, Axis axis, int totalSize, LayoutContainerMetrics containerMetrics, LayoutTimings timings) {
+		GridMetrics.Tracks tracks = gridMetrics.getTracks(axis);
+		int count = tracks.count;
+		long start = (timings!=null) ? System.nanoTime() : 0;
+		
+		//Set initial sizes
+		setInitial(tracks, count, totalSize, containerMetrics);
+		if (timings!=null) start = timings.lap(LayoutTimings.Phase.SET_INITIAL, start);
+		
+		//Stretch multi-column/multi-row constraints
+		context.spanSolver.solve(tracks, count, gridMetrics.getConstraints(axis), totalSize, containerMetrics);
+		if (timings!=null) start = timings.lap(LayoutTimings.Phase.STRETCH_CONSTRAINTS, start);
+		
+		//Preferentially grow elements that don't have a specific size declared
+		stretchUnspecified(tracks, count, totalSize);
+		if (timings!=null) start = timings.lap(LayoutTimings.Phase.STRETCH_UNSPECIFIED, start);
+		
+		//Stretch all elements equally
+		int leftover = totalSize;
+		for(int i=0; i<count; i++) {
+			leftover -= tracks.size[i];
+		}
+		int leftoverPerTrack = (count>0) ? leftover / count : 0;
+		for(int i=0; i<count; i++) {
+			tracks.size[i] += leftoverPerTrack;
 		}
+		if (timings!=null) start = timings.lap(LayoutTimings.Phase.LEFTOVER, start);
+		
+		tracks.recalcStarts(count);
+		
+		//If there's any shortfall left, add it to the last row or column.
+		stretchEnd(tracks, count, totalSize);
+		if (timings!=null) timings.lap(LayoutTimings.Phase.STRETCH_END, start);
+	}
+	
+	/**
+	 * Works out an element's offset and size along one axis of a solved grid, and stores them into the first two
+	 * elements of placement.
+	 */
+	private static void placeAxis(GridMetrics gridMetrics, LayoutContainerMetrics containerMetrics, OldLayoutElementMetrics metrics, Axis axis, int naturalSize, int totalSize, int[] placement) {
+		placeAxis(gridMetrics, axis, containerMetrics.getCellPadding(), containerMetrics.getCollapseMargins(),
+				axis.choose(metrics.getCellX(), metrics.getCellY()),
+				axis.choose(metrics.getCellsX(), metrics.getCellsY()),
+				axis.choose(metrics.getPaddingLeft(), metrics.getPaddingTop()),
+				axis.choose(metrics.getPaddingRight(), metrics.getPaddingBottom()),
+				axis.choose(metrics.getHorizontalGrowType(), metrics.getVerticalGrowType()),
+				axis.choose(metrics.getHorizontalAlignment(), metrics.getVerticalAlignment()),
+				axis.choose(metrics.getFixedMinX(), metrics.getFixedMinY()),
+				axis.choose(metrics.getRelativeMinX(), metrics.getRelativeMinY()),
+				naturalSize, totalSize, placement);
+	}
+	
+	/**
+	 * Works out an element's offset and size along one axis of a solved grid from the element's metrics along that axis,
+	 * and stores them into the first two elements of placement.
+	 */
+	static void placeAxis(GridMetrics gridMetrics, Axis axis, int cellPadding, boolean collapseMargins, int cell, int cells, int elemPaddingLeading, int elemPaddingTrailing, GrowType growType, Alignment alignment, int fixedMin, int relativeMin, int naturalSize, int totalSize, int[] placement) {
+		int lastCell = cell + (cells-1);
+		
+		//This merely defines the available space within which the component may be placed. Here, maximum values can be considered and the element can be aligned against its cell.
+		int cellStart = gridMetrics.getCellStart(axis, cell);
+		int lastCellEnd = gridMetrics.getCellStart(axis, lastCell) + gridMetrics.getCellSize(axis, lastCell);
+		int cellSize = lastCellEnd - cellStart;
+		
+		int paddingLeading = cellPadding; if (cell>0) paddingLeading /= 2;
+		int paddingTrailing = cellPadding; if (lastCell<gridMetrics.getCells(axis)-1) paddingTrailing /= 2;
+		
+		placeInCell(cellStart, cellSize, paddingLeading, paddingTrailing, collapseMargins, elemPaddingLeading, elemPaddingTrailing, growType, alignment, fixedMin, relativeMin, naturalSize, totalSize, placement);
 	}
 	
-	private static void stretchConstraints(GridMetrics.Element[] elements, Collection<GridMetrics.Constraint> constraints, int totalSize, LayoutContainerMetrics containerMetrics) {
-		for(GridMetrics.Constraint constraint : constraints) {
-			stretchConstraint(elements, constraint, totalSize, containerMetrics);
+	/**
+	 * Works out an element's offset and size along one axis within the space its cells cover, given the cell padding on
+	 * either side of it, and stores them into the first two elements of placement.
+	 */
+	static void placeInCell(int cellStart, int cellSize, int paddingLeading, int paddingTrailing, boolean collapseMargins, int elemPaddingLeading, int elemPaddingTrailing, GrowType growType, Alignment alignment, int fixedMin, int relativeMin, int naturalSize, int totalSize, int[] placement) {
+		if (collapseMargins) {
+			paddingLeading = Math.max(elemPaddingLeading, paddingLeading);
+			paddingTrailing = Math.max(elemPaddingTrailing, paddingTrailing);
+		} else {
+			paddingLeading += elemPaddingLeading;
+			paddingTrailing += elemPaddingTrailing;
+		}
+		
+		//These ones are actually the maximum-sized element within the cell
+		int elemStart = cellStart + paddingLeading;
+		int elemSize = cellSize - (paddingLeading+paddingTrailing);
+		
+		if (growType==GrowType.PACK) {
+			int preferredSize = Math.max(Math.max(fixedMin, naturalSize), (int)((relativeMin/100.0)*totalSize));
+			if (preferredSize<elemSize) {
+				elemSize = preferredSize;
+				switch (alignment) {
+				case CENTER: {
+					int offset = (cellSize/2) - (preferredSize/2);
+					elemStart += offset;
+					break;
+				}
+				case TRAILING: {
+					int offset = (cellSize-(paddingLeading+paddingTrailing)) - preferredSize;
+					elemStart += offset;
+					break;
+				}
+				case LEADING:
+				default: //Do nothing
+					break;
+				}
+			}
 		}
+		
+		placement[0] = elemStart;
+		placement[1] = elemSize;
 	}
 	
-	private static void stretchConstraint(GridMetrics.Element[] elements, GridMetrics.Constraint constraint, int totalSize, LayoutContainerMetrics containerMetrics) {
-		if (constraint.index+(constraint.span-1)>=elements.length) return; //This constraint doesn't...fit.
-		
-		int resolvedFixed = (constraint.fixedSize>0) ? constraint.fixedSize+(containerMetrics.getCellPadding()*2) : 0;
-		int resolvedRelative = (constraint.relativeSize>0) ? (int)((constraint.relativeSize/100.0)*totalSize)+(containerMetrics.getCellPadding()*2) : 0;
-		int resolved = Math.max(resolvedFixed, resolvedRelative);
-		if (resolved==0) return; //shouldn't happen
-		
-		int existingSize = 0;
-		for(int i=0; i<constraint.span; i++) {
-			GridMetrics.Element element = elements[constraint.index+i];
-			existingSize += element.size;
+	/**
+	 * Collects the children of container into the context's element list, and merges their metrics into gridMetrics.
+	 * If removeCollisions is true, any element which overlaps cells claimed by an element added before it is flagged as
+	 * removed, and doesn't contribute to the grid. If skipAxis is non-null, element metrics along that axis aren't added.
+	 */
+	static void buildGrid(LayoutContext context, LayoutContainer container, GridMetrics gridMetrics, boolean removeCollisions, Axis skipAxis) {
+		context.collectElements(container, skipAxis);
+		addElements(context, container, gridMetrics, removeCollisions, skipAxis);
+	}
+	
+	/**
+	 * Merges the metrics of the elements already in the context's element list into gridMetrics. Otherwise the same as
+	 * {@link #buildGrid(LayoutContext, LayoutContainer, GridMetrics, boolean, Axis)}.
+	 */
+	private static void addElements(LayoutContext context, LayoutContainer container, GridMetrics gridMetrics, boolean removeCollisions, Axis skipAxis) {
+		for(int i=0; i<context.elementCount; i++) {
+			OldLayoutElementMetrics metrics = context.metrics[i];
+			gridMetrics.ensureSpaceFor(metrics);
 		}
+		gridMetrics.addContainerMetrics(container.getLayoutContainerMetrics());
+		gridMetrics.allocateTracks();
 		
-		int leftover = resolved - existingSize;
+		if (removeCollisions) {
+			//First-added wins, so the result doesn't depend on anything but the order of the container's children.
+			//Overlap is tested between tracks rather than cells, which is the same thing since every cell an element
+			//starts or ends on has a track.
+			GridMetrics.Tracks columns = gridMetrics.xMetrics;
+			GridMetrics.Tracks rows = gridMetrics.yMetrics;
+			CellOccupancy occupancy = context.occupancy;
+			occupancy.reset(columns.count, rows.count);
+			for(int i=0; i<context.elementCount; i++) {
+				OldLayoutElementMetrics metrics = context.metrics[i];
+				if (metrics.getCellX()<0 || metrics.getCellY()<0) continue;
+				int firstX = columns.find(metrics.getCellX());
+				int firstY = rows.find(metrics.getCellY());
+				int lastX = columns.floorTrack(Math.min(metrics.getCellX()+(metrics.getCellsX()-1), gridMetrics.width-1));
+				int lastY = rows.floorTrack(Math.min(metrics.getCellY()+(metrics.getCellsY()-1), gridMetrics.height-1));
+				if (!occupancy.claim(firstX, firstY, (lastX-firstX)+1, (lastY-firstY)+1)) context.removed[i] = true;
+			}
+		}
 		
-		if (leftover<=0) return;
-		int leftoverPerElem = leftover / constraint.span;
-		for(int i=0; i<constraint.span; i++) {
-			GridMetrics.Element element = elements[constraint.index+i];
-			element.size += leftoverPerElem;
+		//We need to know how big the grid is before we size the rows and columns, so we know where to allocate margins
+		for(int i=0; i<context.elementCount; i++) {
+			if (context.removed[i]) continue;
+			if (skipAxis!=Axis.HORIZONTAL) gridMetrics.addElementMetrics(context.metrics[i], Axis.HORIZONTAL, context.naturalWidths[i]);
+			if (skipAxis!=Axis.VERTICAL) gridMetrics.addElementMetrics(context.metrics[i], Axis.VERTICAL, context.naturalHeights[i]);
+		}
+	}
+	
+	private static void setInitial(GridMetrics.Tracks tracks, int num, int totalSize, LayoutContainerMetrics containerMetrics) {
+		int[] fixedSize = tracks.fixedSize;
+		int[] relativeSize = tracks.relativeSize;
+		int[] size = tracks.size;
+		for(int i=0; i<num; i++) {
+			int resolvedFixed = (fixedSize[i]>0) ? fixedSize[i]+(containerMetrics.getCellPadding()*2) : 0;
+			int resolvedRelative = (relativeSize[i]>0) ? (int)((relativeSize[i]/100.0)*totalSize)+(containerMetrics.getCellPadding()*2) : 0;
+			size[i] = Math.max(resolvedFixed, resolvedRelative);
 		}
 	}
 	
-	private static int stretchUnspecified(GridMetrics.Element[] elements, int num, int totalSize) {
+	private static int stretchUnspecified(GridMetrics.Tracks tracks, int num, int totalSize) {
+		int[] size = tracks.size;
 		int leftover = totalSize;
 		int unspecified = 0;
 		for(int i=0; i<num; i++) {
-			GridMetrics.Element elem = elements[i];
-			//System.out.println("Elem "+elem.size);
-			leftover-= elem.size;
-			if ( !elem.multiColumnApplied && elem.fixedSize<=0 && elem.relativeSize<=0 ) unspecified++;
+			leftover-= size[i];
+			if (tracks.isUnspecified(i)) unspecified++;
 		}
 		if (leftover<=0) return -leftover;
 		if (unspecified==0) return 0;
 		int leftoverPerElem = leftover / unspecified;
 		for(int i=0; i<num; i++) {
-			GridMetrics.Element elem = elements[i];
-			if ( !elem.multiColumnApplied && elem.fixedSize<=0 && elem.relativeSize<=0 ) elem.size += leftoverPerElem;
+			if (tracks.isUnspecified(i)) size[i] += leftoverPerElem;
 		}
 		
 		return 0;
 	}
 	
-	private static void stretchEnd(GridMetrics.Element[] elements, int num, int totalSize) {
-		GridMetrics.Element rightmost = elements[num-1];
-		if (rightmost.location+rightmost.size < totalSize) {
-			rightmost.size = (totalSize)-rightmost.location;
+	private static void stretchEnd(GridMetrics.Tracks tracks, int num, int totalSize) {
+		int last = num-1;
+		if (tracks.location[last]+tracks.size[last] < totalSize) {
+			tracks.size[last] = (totalSize)-tracks.location[last];
 		}
 	}
 }
@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.Arrays;
+
+import blue.endless.splinter.data.Axis;
+import blue.endless.splinter.metrics.GridMetrics;
+
+/**
+ * Remembers the last few solved layouts of one LayoutContainer, keyed by the size it was solved at and its
+ * {@link LayoutContainer#getLayoutVersion() layout version}. When a container is laid out again at a size it has
+ * recently seen, Layout replays the stored results instead of solving the grid again. When the cache is full, the
+ * least-recently-used entry is overwritten.
+ */
+public class LayoutCache {
+	public static final int DEFAULT_CAPACITY = 4;
+	
+	private final Entry[] entries;
+	private long clock = 0L;
+	private long hits = 0L;
+	private long misses = 0L;
+	
+	public LayoutCache() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public LayoutCache(int capacity) {
+		if (capacity<1) throw new IllegalArgumentException("Cache capacity must be at least 1.");
+		entries = new Entry[capacity];
+	}
+	
+	/**
+	 * Looks up a completed layout for the given key, counting a hit or miss.
+	 * @return the matching Entry, or null if there is none.
+	 */
+	public Entry get(int width, int height, int version, boolean removeCollisions) {
+		for(Entry entry : entries) {
+			if (entry!=null && entry.complete && entry.matches(width, height, version, removeCollisions)) {
+				entry.lastUsed = ++clock;
+				hits++;
+				return entry;
+			}
+		}
+		misses++;
+		return null;
+	}
+	
+	/**
+	 * Looks for a completed layout at the same version and collision setting which shares exactly one dimension with the
+	 * given size, so that the axis along that dimension can be reused rather than solved again. Doesn't count as a hit
+	 * or a miss.
+	 * @return the most recently used such Entry, or null if there is none.
+	 */
+	public Entry getAxisDonor(int width, int height, int version, boolean removeCollisions) {
+		Entry result = null;
+		for(Entry entry : entries) {
+			if (entry==null || !entry.complete || entry.version!=version || entry.removeCollisions!=removeCollisions) continue;
+			if ((entry.width==width) == (entry.height==height)) continue;
+			if (result==null || entry.lastUsed>result.lastUsed) result = entry;
+		}
+		return result;
+	}
+	
+	/**
+	 * Picks an Entry to record a new layout into, evicting the least-recently-used one if the cache is full. The
+	 * returned Entry won't be returned by {@link #get(int, int, int, boolean)} until {@link Entry#complete()} is called.
+	 */
+	public Entry claim(int width, int height, int version, boolean removeCollisions) {
+		return claim(width, height, version, removeCollisions, null);
+	}
+	
+	/**
+	 * Picks an Entry to record a new layout into, as {@link #claim(int, int, int, boolean)} does, but never picks keep,
+	 * so that it can still be read from while the new layout is recorded. If keep is the only entry this cache can hold,
+	 * it's picked anyway.
+	 */
+	public Entry claim(int width, int height, int version, boolean removeCollisions, Entry keep) {
+		int victim = -1;
+		for(int i=0; i<entries.length; i++) {
+			if (entries[i]==null) {
+				entries[i] = new Entry();
+				victim = i;
+				break;
+			}
+			if (entries[i]==keep) continue;
+			if (victim<0 || entries[i].lastUsed < entries[victim].lastUsed) victim = i;
+		}
+		if (victim<0) victim = 0;
+		
+		Entry entry = entries[victim];
+		entry.reset();
+		entry.width = width;
+		entry.height = height;
+		entry.version = version;
+		entry.removeCollisions = removeCollisions;
+		entry.lastUsed = ++clock;
+		return entry;
+	}
+	
+	/** Forgets all stored layouts. Hit and miss counts are kept. */
+	public void clear() {
+		for(Entry entry : entries) {
+			if (entry!=null) entry.reset();
+		}
+	}
+	
+	public int getCapacity() { return entries.length; }
+	public long getHitCount() { return hits; }
+	public long getMissCount() { return misses; }
+	
+	public void resetStats() {
+		hits = 0L;
+		misses = 0L;
+	}
+	
+	/**
+	 * One solved layout: the GridMetrics handed to the container, and the geometry of every child in the order it was
+	 * handed to setLayoutValues. Placed children are stored relative to the container's origin, so a hit can be replayed
+	 * at any position; removed children always get zero geometry.
+	 */
+	public static class Entry {
+		private int width;
+		private int height;
+		private int version;
+		private boolean removeCollisions;
+		private boolean complete = false;
+		private long lastUsed = 0L;
+		
+		private final GridMetrics gridMetrics = new GridMetrics();
+		private LayoutElement[] elements = new LayoutElement[8];
+		private int[] bounds = new int[8*4];
+		private int placed = 0;
+		private int size = 0;
+		/** Placed children's y positions in the high bits, and their index in the low bits, in ascending order */
+		private long[] byTop = new long[8];
+		private int maxHeight = 0;
+		private boolean indexed = false;
+		
+		public Entry() {}
+		
+		private boolean matches(int width, int height, int version, boolean removeCollisions) {
+			return this.width==width && this.height==height && this.version==version && this.removeCollisions==removeCollisions;
+		}
+		
+		/** Returns true if this layout was solved with the given width (for HORIZONTAL) or height (for VERTICAL) */
+		public boolean isSolvedAt(Axis axis, int size) {
+			return axis.choose(width, height)==size;
+		}
+		
+		public void reset() {
+			complete = false;
+			gridMetrics.clear();
+			Arrays.fill(elements, 0, size, null);
+			placed = 0;
+			size = 0;
+			indexed = false;
+		}
+		
+		/** Records a child that was placed at the given offset from the container's origin. Must precede any removed children. */
+		public void addPlaced(LayoutElement elem, int x, int y, int width, int height) {
+			add(elem, x, y, width, height);
+			placed++;
+		}
+		
+		/** Records a child that was removed from the layout */
+		public void addRemoved(LayoutElement elem) {
+			add(elem, 0, 0, 0, 0);
+		}
+		
+		private void add(LayoutElement elem, int x, int y, int width, int height) {
+			if (size>=elements.length) {
+				elements = Arrays.copyOf(elements, elements.length*2);
+				bounds = Arrays.copyOf(bounds, elements.length*4);
+			}
+			elements[size] = elem;
+			int base = size*4;
+			bounds[base  ] = x;
+			bounds[base+1] = y;
+			bounds[base+2] = width;
+			bounds[base+3] = height;
+			size++;
+		}
+		
+		/** Marks this Entry as fully recorded, making it available to lookups. */
+		public void complete() {
+			complete = true;
+		}
+		
+		/** Gets the GridMetrics this Entry owns. Layout solves directly into it. */
+		public GridMetrics getGridMetrics() { return gridMetrics; }
+		
+		/** Gets the total number of children recorded */
+		public int size() { return size; }
+		
+		/** Gets the number of children recorded which were placed, rather than removed. These always come first. */
+		public int placedCount() { return placed; }
+		
+		public LayoutElement getElement(int index) { return elements[index]; }
+		public int getX(int index) { return bounds[index*4]; }
+		public int getY(int index) { return bounds[index*4+1]; }
+		public int getWidth(int index) { return bounds[index*4+2]; }
+		public int getHeight(int index) { return bounds[index*4+3]; }
+		
+		/**
+		 * Gets the first position, in top-to-bottom order of placed children, of a child which might reach down to the
+		 * given y or beyond. Children at this position and after it are retrieved with {@link #getPlacedByTop(int)}, and
+		 * once one starts at or below the bottom of the area of interest, none of the ones after it can intersect it.
+		 * 
+		 * <p>The ordering is built the first time this is called after a layout is recorded, and kept until this Entry
+		 * is reset. Children which are much taller than the rest make lookups scan further back.
+		 */
+		public int findPlacedFrom(int y) {
+			if (!indexed) indexByTop();
+			
+			//Nothing starting further up than the tallest child's height can reach y
+			long key = ((long) y - maxHeight) << 32;
+			int lo = 0;
+			int hi = placed;
+			while(lo<hi) {
+				int mid = (lo+hi) >>> 1;
+				if (byTop[mid] < key) {
+					lo = mid+1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+		
+		/** Gets the index of the placed child at the given position in top-to-bottom order */
+		public int getPlacedByTop(int position) {
+			return (int) byTop[position];
+		}
+		
+		private void indexByTop() {
+			if (byTop.length<placed) byTop = new long[elements.length];
+			maxHeight = 0;
+			for(int i=0; i<placed; i++) {
+				byTop[i] = ((long) getY(i) << 32) | i;
+				maxHeight = Math.max(maxHeight, getHeight(i));
+			}
+			Arrays.sort(byTop, 0, placed);
+			indexed = true;
+		}
+	}
+}
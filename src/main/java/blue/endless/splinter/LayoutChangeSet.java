@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.Arrays;
+
+import blue.endless.splinter.data.Rect;
+
+/**
+ * A record of the elements whose bounds were changed by layout, for repainting only the parts of the screen that
+ * changed. Attach one to a {@link LayoutContext} with {@link LayoutContext#setChangeSet(LayoutChangeSet)}, and every
+ * call to setLayoutValues that gives an element different bounds than it had is recorded, along with the element's old
+ * and new rectangles. Elements which are handed the bounds they already had aren't recorded.
+ * 
+ * <p>Changes accumulate across layouts until {@link #clear()} is called, so one change set can collect the changes to
+ * several trees over a frame. Old bounds come from {@link LayoutContainer#getLayoutValues(LayoutElement, int[])}; if a
+ * container can't report them, every element it places is recorded as changed, with empty old bounds.
+ * 
+ * <p>Storage is kept between clears, so a change set that is reused every frame stops allocating once it has seen the
+ * largest frame.
+ */
+public class LayoutChangeSet {
+	private LayoutElement[] elements = new LayoutElement[16];
+	/** Old x, y, width, height, then new x, y, width, height, for each change */
+	private int[] bounds = new int[16*8];
+	private int size = 0;
+	
+	private boolean damaged = false;
+	private int damageMinX;
+	private int damageMinY;
+	private int damageMaxX;
+	private int damageMaxY;
+	
+	/** Forgets all recorded changes and the damage region */
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+		damaged = false;
+	}
+	
+	/** Records that elem was moved or resized. Either rectangle may be empty. */
+	public void add(LayoutElement elem, int oldX, int oldY, int oldWidth, int oldHeight, int newX, int newY, int newWidth, int newHeight) {
+		if (size>=elements.length) {
+			elements = Arrays.copyOf(elements, elements.length*2);
+			bounds = Arrays.copyOf(bounds, elements.length*8);
+		}
+		elements[size] = elem;
+		int base = size*8;
+		bounds[base  ] = oldX;
+		bounds[base+1] = oldY;
+		bounds[base+2] = oldWidth;
+		bounds[base+3] = oldHeight;
+		bounds[base+4] = newX;
+		bounds[base+5] = newY;
+		bounds[base+6] = newWidth;
+		bounds[base+7] = newHeight;
+		size++;
+		
+		addDamage(oldX, oldY, oldWidth, oldHeight);
+		addDamage(newX, newY, newWidth, newHeight);
+	}
+	
+	private void addDamage(int x, int y, int width, int height) {
+		if (width<=0 || height<=0) return;
+		if (!damaged) {
+			damageMinX = x;
+			damageMinY = y;
+			damageMaxX = x+width;
+			damageMaxY = y+height;
+			damaged = true;
+		} else {
+			damageMinX = Math.min(damageMinX, x);
+			damageMinY = Math.min(damageMinY, y);
+			damageMaxX = Math.max(damageMaxX, x+width);
+			damageMaxY = Math.max(damageMaxY, y+height);
+		}
+	}
+	
+	/** Gets the number of changes recorded */
+	public int size() { return size; }
+	
+	public boolean isEmpty() { return size==0; }
+	
+	public LayoutElement getElement(int index) { return elements[index]; }
+	public int getOldX(int index) { return bounds[index*8]; }
+	public int getOldY(int index) { return bounds[index*8+1]; }
+	public int getOldWidth(int index) { return bounds[index*8+2]; }
+	public int getOldHeight(int index) { return bounds[index*8+3]; }
+	public int getNewX(int index) { return bounds[index*8+4]; }
+	public int getNewY(int index) { return bounds[index*8+5]; }
+	public int getNewWidth(int index) { return bounds[index*8+6]; }
+	public int getNewHeight(int index) { return bounds[index*8+7]; }
+	
+	/** Returns true if any recorded change covers a non-empty area of the screen */
+	public boolean hasDamage() {
+		return damaged;
+	}
+	
+	/**
+	 * Gets the smallest rectangle covering both the old and new bounds of every recorded change. Everything outside it
+	 * looks the same as it did before.
+	 * @return the damaged region, or null if nothing visible changed.
+	 */
+	public Rect getDamage() {
+		if (!damaged) return null;
+		return new Rect(damageMinX, damageMinY, damageMaxX-damageMinX, damageMaxY-damageMinY);
+	}
+}
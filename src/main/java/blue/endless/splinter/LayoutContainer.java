@@ -25,6 +25,7 @@
 package blue.endless.splinter;
 
 import blue.endless.splinter.data.Axis;
+import blue.endless.splinter.data.Rect;
 import blue.endless.splinter.metrics.GridMetrics;
 import blue.endless.splinter.metrics.LayoutContainerMetrics;
 import blue.endless.splinter.metrics.LayoutElementAxisMetrics;
@@ -41,6 +42,9 @@ public interface LayoutContainer {
 	public LayoutContainerMetrics getLayoutContainerMetrics();
 	
 	/** Notifies the host container of grid metrics, in case it can draw visible gridlines or boxes.
+	 * 
+	 * <p>The layout system reuses GridMetrics between layouts, so the object passed in may be changed by a later layout
+	 * of this or another container. Copy it if it needs to be kept.
 	 * 
 	 * @param metrics the locations and spacings of cells that were assigned to this container
 	 */
@@ -55,6 +59,86 @@ public interface LayoutContainer {
 	 */
 	void setLayoutValues(LayoutElement elem, int x, int y, int width, int height);
 	
+	/**
+	 * Gets the values last given to elem through {@link #setLayoutValues(LayoutElement, int, int, int, int)}, so that
+	 * Layout can tell whether they're changing when a {@link LayoutChangeSet} is recording. Containers which don't keep
+	 * them can leave this returning false.
+	 * @param elem The element to look up
+	 * @param out An array of at least 4 elements, which receives the element's x, y, width, and height
+	 * @return true if out was filled in, or false if the values aren't known
+	 */
+	default boolean getLayoutValues(LayoutElement elem, int[] out) { return false; }
+	
+	/**
+	 * Used by {@link Layout#relayout(LayoutContainer, int, int, int, int, boolean)} to decide whether this container
+	 * can be skipped. Containers which don't track their own changes should leave this returning true.
+	 * @param x The x value this container is about to be laid out at
+	 * @param y The y value this container is about to be laid out at
+	 * @param width The width this container is about to be laid out at
+	 * @param height The height this container is about to be laid out at
+	 * @param removeCollisions Whether overlapping children are about to be removed from the layout
+	 * @return false if and only if this container was last solved at exactly these bounds and with the same
+	 *         removeCollisions setting, and neither its children nor any of their metrics have changed since then.
+	 */
+	default boolean needsLayout(int x, int y, int width, int height, boolean removeCollisions) { return true; }
+	
+	/**
+	 * Called by the layout system once this container and all its children have been solved at the given bounds.
+	 * @param x The x value this container was laid out at
+	 * @param y The y value this container was laid out at
+	 * @param width The width this container was laid out at
+	 * @param height The height this container was laid out at
+	 * @param removeCollisions Whether overlapping children were removed from the layout
+	 */
+	default void setLayoutClean(int x, int y, int width, int height, boolean removeCollisions) {}
+	
+	/**
+	 * Used by {@link Layout#measure(LayoutContext, LayoutContainer)} to decide whether this container's natural size
+	 * needs to be worked out again. Containers which return false here must also return false for every container
+	 * below them. Containers which don't track their own changes should leave this returning true.
+	 * @return false if and only if this container's children and their metrics haven't changed since the last time its
+	 *         natural size was set.
+	 */
+	default boolean needsMeasure() { return true; }
+	
+	/**
+	 * Called by the layout system once this container's natural width and height have been set.
+	 */
+	default void setMeasureClean() {}
+	
+	/**
+	 * Gets the cache of recently-solved layouts for this container, or null if this container's layouts shouldn't be
+	 * cached. Containers which return a cache must also implement {@link #getLayoutVersion()}.
+	 */
+	default LayoutCache getLayoutCache() { return null; }
+	
+	/**
+	 * Gets a number which changes every time this container's children, their metrics, or this container's own metrics
+	 * change. Used to tell stale {@link LayoutCache} entries apart from current ones. Metrics notify their change
+	 * listeners on every write, so a container can hook {@link LayoutContainerMetrics#setChangeListener(Runnable)} and
+	 * {@link OldLayoutElementMetrics#setChangeListener(Runnable)} to keep this current, along with
+	 * {@link LayoutElementAxisMetrics#setChangeListener(Runnable)} so that changed natural sizes are measured again.
+	 */
+	default int getLayoutVersion() { return 0; }
+	
+	/**
+	 * Gets the part of this container which is visible, relative to the container's origin, or null if all of it is.
+	 * 
+	 * <p>When a viewport is set, the whole grid is still solved, but Layout only calls setLayoutValues for (and lays out
+	 * the insides of) children which intersect the viewport. Children outside it keep whatever values they had before.
+	 * Since solved layouts are cached, moving the viewport of a container whose size and contents haven't changed costs
+	 * time proportional to the number of visible children plus the log of the number of children. Containers whose
+	 * viewport moves must return true from {@link #needsLayout(int, int, int, int, boolean)} for the next layout.
+	 */
+	default Rect getViewport() { return null; }
+	
+	/**
+	 * Gets the strategy which positions this container's children, or null to lay them out on a grid according to their
+	 * {@link OldLayoutElementMetrics}. Containers which change strategies, or change anything their strategy depends on,
+	 * must change their layout version.
+	 */
+	default LayoutStrategy getLayoutStrategy() { return null; }
+	
 	/**
 	 * Used by the layout system to notify the LayoutContainer of the inflexible minimum width mandated by its children
 	 * @param value the natural width of the container
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import blue.endless.splinter.data.Axis;
+import blue.endless.splinter.metrics.GridMetrics;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+
+/**
+ * Working memory for Layout. Holds onto the GridMetrics, child lists and other buffers that solving a container needs,
+ * and hands them back out on the next layout instead of allocating new ones. Once a LayoutContext has laid out a tree,
+ * laying out a tree of the same shape again allocates nothing.
+ * 
+ * <p>A LayoutContext may only be used by one layout at a time, but can be reused for as many layouts, of as many
+ * different trees, as needed.
+ * 
+ * <p>Uncached containers are handed GridMetrics which belong to this context, and which will be overwritten by later
+ * layouts that use it. Containers that want to keep their GridMetrics around should copy them.
+ */
+public class LayoutContext {
+	/** One result per tree depth, since a parent's result is still being applied while its children are solved */
+	private LayoutCache.Entry[] results = new LayoutCache.Entry[4];
+	/** If non-null, the ParallelLayout this context belongs to, which may take over recursion into child containers */
+	ParallelLayout parallel = null;
+	/** Only used by the measure pass, which never needs more than one grid at a time */
+	final GridMetrics measureGrid = new GridMetrics();
+	final SpanSolver spanSolver = new SpanSolver();
+	final CellOccupancy occupancy = new CellOccupancy();
+	/** If non-null, where changed bounds are recorded */
+	LayoutChangeSet changes = null;
+	/** If non-null, notified of every container solved, and the only reason the clock is read during layout */
+	LayoutListener listener = null;
+	final LayoutTimings timings = new LayoutTimings();
+	final int[] oldBounds = new int[4];
+	/** Receives the offset and size of an element along one axis */
+	final int[] placement = new int[2];
+	
+	LayoutElement[] elements = new LayoutElement[16];
+	OldLayoutElementMetrics[] metrics = new OldLayoutElementMetrics[16];
+	int[] naturalWidths = new int[16];
+	int[] naturalHeights = new int[16];
+	boolean[] removed = new boolean[16];
+	int elementCount = 0;
+	
+	/**
+	 * Sets the change set that layouts using this context record changed bounds into, or null to stop recording. Only
+	 * sequential layouts record changes; those run by {@link ParallelLayout} don't.
+	 */
+	public void setChangeSet(LayoutChangeSet changes) {
+		this.changes = changes;
+	}
+	
+	public LayoutChangeSet getChangeSet() {
+		return changes;
+	}
+	
+	/**
+	 * Sets the listener that layouts using this context report each solved container and its timings to, or null to
+	 * stop timing layouts. Only sequential layouts are reported; those run by {@link ParallelLayout} aren't.
+	 */
+	public void setListener(LayoutListener listener) {
+		this.listener = listener;
+	}
+	
+	public LayoutListener getListener() {
+		return listener;
+	}
+	
+	LayoutCache.Entry obtainResult(int depth) {
+		if (depth>=results.length) results = Arrays.copyOf(results, Math.max(depth+1, results.length*2));
+		LayoutCache.Entry result = results[depth];
+		if (result==null) {
+			result = new LayoutCache.Entry();
+			results[depth] = result;
+		} else {
+			result.reset();
+		}
+		return result;
+	}
+	
+	/**
+	 * Replaces the element list with the children of the given container, along with their metrics and natural sizes.
+	 * If skipAxis is non-null, natural sizes along it aren't looked up, and are left as zero.
+	 */
+	void collectElements(LayoutContainer container, Axis skipAxis) {
+		clearElements();
+		Iterable<? extends LayoutElement> children = container.getLayoutChildren();
+		if (children instanceof List<? extends LayoutElement> list && children instanceof RandomAccess) {
+			//Skip creating an Iterator where we can
+			for(int i=0; i<list.size(); i++) {
+				addElement(container, list.get(i), skipAxis);
+			}
+		} else {
+			for(LayoutElement elem : children) {
+				addElement(container, elem, skipAxis);
+			}
+		}
+	}
+	
+	private void addElement(LayoutContainer container, LayoutElement elem, Axis skipAxis) {
+		addElement(elem, container.getOldLayoutElementMetrics(elem),
+				(skipAxis==Axis.HORIZONTAL) ? 0 : Layout.getNaturalSize(container, elem, Axis.HORIZONTAL),
+				(skipAxis==Axis.VERTICAL) ? 0 : Layout.getNaturalSize(container, elem, Axis.VERTICAL));
+	}
+	
+	void addElement(LayoutElement elem, OldLayoutElementMetrics elemMetrics, int naturalWidth, int naturalHeight) {
+		if (elementCount>=elements.length) {
+			int newSize = elements.length*2;
+			elements = Arrays.copyOf(elements, newSize);
+			metrics = Arrays.copyOf(metrics, newSize);
+			naturalWidths = Arrays.copyOf(naturalWidths, newSize);
+			naturalHeights = Arrays.copyOf(naturalHeights, newSize);
+			removed = Arrays.copyOf(removed, newSize);
+		}
+		elements[elementCount] = elem;
+		metrics[elementCount] = elemMetrics;
+		naturalWidths[elementCount] = naturalWidth;
+		naturalHeights[elementCount] = naturalHeight;
+		removed[elementCount] = false;
+		elementCount++;
+	}
+	
+	/** Drops references to the last container's children so they aren't kept reachable by this context */
+	void clearElements() {
+		Arrays.fill(elements, 0, elementCount, null);
+		Arrays.fill(metrics, 0, elementCount, null);
+		elementCount = 0;
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter;
+
+/**
+ * Hears about each container Layout solves, along with how long each phase of solving it took, for finding out where
+ * layout time goes. Attach one to a {@link LayoutContext} with {@link LayoutContext#setListener(LayoutListener)}. When
+ * no listener is attached, Layout doesn't read the clock at all.
+ * 
+ * <p>Only containers which are actually solved on the grid are reported. Containers whose layout comes out of their
+ * {@link LayoutCache}, containers skipped by a relayout, and containers with a {@link LayoutStrategy} aren't. Like
+ * change sets, listeners only hear about sequential layouts, not those run by {@link ParallelLayout}.
+ * 
+ * <p>{@link LayoutProfiler} is a listener which collects the slowest containers into a report.
+ */
+public interface LayoutListener {
+	/**
+	 * Called once container has been solved, before any of its children are laid out.
+	 * @param container the container which was solved
+	 * @param timings what was solved and how long it took. The same object is handed out for every container, so copy
+	 *        out anything that needs to be kept.
+	 */
+	void containerSolved(LayoutContainer container, LayoutTimings timings);
+}
@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A {@link LayoutListener} which adds up the time spent solving each container over any number of layouts, and reports
+ * the containers that took the longest.
+ * 
+ * <pre>
+ * LayoutProfiler profiler = new LayoutProfiler();
+ * context.setListener(profiler);
+ * ...lay out some frames...
+ * System.out.println(profiler.report(10));
+ * </pre>
+ * 
+ * <p>The profiler keeps every container it hears about reachable until it's cleared. It isn't thread-safe, so a
+ * profiler should only be attached to contexts used by one thread at a time.
+ */
+public class LayoutProfiler implements LayoutListener {
+	private static final LayoutTimings.Phase[] PHASES = LayoutTimings.Phase.values();
+	
+	private final IdentityHashMap<LayoutContainer, ContainerStats> stats = new IdentityHashMap<>();
+	private long solves = 0;
+	private long totalNanos = 0;
+	
+	@Override
+	public void containerSolved(LayoutContainer container, LayoutTimings timings) {
+		ContainerStats containerStats = stats.get(container);
+		if (containerStats==null) {
+			containerStats = new ContainerStats(container);
+			stats.put(container, containerStats);
+		}
+		containerStats.add(timings);
+		solves++;
+		totalNanos += timings.getTotalNanos();
+	}
+	
+	/** Forgets everything recorded so far */
+	public void clear() {
+		stats.clear();
+		solves = 0;
+		totalNanos = 0;
+	}
+	
+	/** Gets the number of containers solved since the profiler was created or cleared */
+	public long getSolveCount() { return solves; }
+	
+	/** Gets the total time spent solving containers since the profiler was created or cleared */
+	public long getTotalNanos() { return totalNanos; }
+	
+	/**
+	 * Gets the containers which have taken the most time to solve, in total across all the times they were solved.
+	 * @param count the maximum number of containers to return
+	 * @return up to count containers' stats, slowest first
+	 */
+	public List<ContainerStats> getSlowest(int count) {
+		List<ContainerStats> result = new ArrayList<>(stats.values());
+		result.sort((a, b)->Long.compare(b.totalNanos, a.totalNanos));
+		if (result.size()>count) result = new ArrayList<>(result.subList(0, count));
+		return result;
+	}
+	
+	/**
+	 * Lays out the slowest containers as a table, with the share of each container's time spent in each phase.
+	 * @param count the maximum number of containers to list
+	 */
+	public String report(int count) {
+		List<ContainerStats> slowest = getSlowest(count);
+		
+		StringBuilder result = new StringBuilder();
+		result.append(String.format("Slowest %d of %d containers (%d solves, %.3f ms total)%n",
+				slowest.size(), stats.size(), solves, totalNanos / 1_000_000.0));
+		result.append(String.format("%-32s %10s %7s %9s %5s %8s %9s %11s",
+				"container", "total ms", "solves", "max us", "depth", "children", "grid", "constraints"));
+		for(LayoutTimings.Phase phase : PHASES) {
+			result.append(String.format(" %9s", abbreviate(phase)));
+		}
+		result.append(System.lineSeparator());
+		
+		for(ContainerStats entry : slowest) {
+			result.append(String.format("%-32s %10.3f %7d %9.1f %5d %8d %9s %11s",
+					describe(entry.container),
+					entry.totalNanos / 1_000_000.0,
+					entry.solves,
+					entry.maxNanos / 1_000.0,
+					entry.depth,
+					entry.childCount,
+					entry.gridWidth + "x" + entry.gridHeight,
+					entry.xConstraints + "/" + entry.yConstraints));
+			for(LayoutTimings.Phase phase : PHASES) {
+				double share = (entry.totalNanos>0) ? entry.getNanos(phase) * 100.0 / entry.totalNanos : 0;
+				result.append(String.format(" %8.1f%%", share));
+			}
+			result.append(System.lineSeparator());
+		}
+		
+		return result.toString();
+	}
+	
+	private static String abbreviate(LayoutTimings.Phase phase) {
+		return switch(phase) {
+			case COLLECT -> "collect";
+			case SET_INITIAL -> "initial";
+			case STRETCH_CONSTRAINTS -> "spans";
+			case STRETCH_UNSPECIFIED -> "unspec";
+			case LEFTOVER -> "leftover";
+			case STRETCH_END -> "end";
+			case PLACEMENT -> "place";
+		};
+	}
+	
+	private static String describe(LayoutContainer container) {
+		String result = container.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(container));
+		return (result.length()>32) ? result.substring(result.length()-32) : result;
+	}
+	
+	/**
+	 * The time spent solving one container, totalled over every time it was solved. The shape of its grid is the one it
+	 * had the last time it was solved.
+	 */
+	public static class ContainerStats {
+		private final LayoutContainer container;
+		private final long[] nanos = new long[PHASES.length];
+		private long solves = 0;
+		private long totalNanos = 0;
+		private long maxNanos = 0;
+		private int depth;
+		private int childCount;
+		private int gridWidth;
+		private int gridHeight;
+		private int xConstraints;
+		private int yConstraints;
+		
+		private ContainerStats(LayoutContainer container) {
+			this.container = container;
+		}
+		
+		private void add(LayoutTimings timings) {
+			long total = 0;
+			for(int i=0; i<PHASES.length; i++) {
+				long phaseNanos = timings.getNanos(PHASES[i]);
+				nanos[i] += phaseNanos;
+				total += phaseNanos;
+			}
+			solves++;
+			totalNanos += total;
+			maxNanos = Math.max(maxNanos, total);
+			depth = timings.getDepth();
+			childCount = timings.getChildCount();
+			gridWidth = timings.getGridWidth();
+			gridHeight = timings.getGridHeight();
+			xConstraints = timings.getXConstraints();
+			yConstraints = timings.getYConstraints();
+		}
+		
+		public LayoutContainer getContainer() { return container; }
+		public long getSolveCount() { return solves; }
+		public long getTotalNanos() { return totalNanos; }
+		/** Gets the time taken by the slowest single solve of this container */
+		public long getMaxNanos() { return maxNanos; }
+		public long getNanos(LayoutTimings.Phase phase) { return nanos[phase.ordinal()]; }
+		public int getDepth() { return depth; }
+		public int getChildCount() { return childCount; }
+		public int getGridWidth() { return gridWidth; }
+		public int getGridHeight() { return gridHeight; }
+		public int getXConstraints() { return xConstraints; }
+		public int getYConstraints() { return yConstraints; }
+	}
+}
@@ -0,0 +1,434 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.Arrays;
+
+import blue.endless.splinter.data.Alignment;
+import blue.endless.splinter.data.Axis;
+import blue.endless.splinter.data.GrowType;
+import blue.endless.splinter.metrics.GridMetrics;
+import blue.endless.splinter.metrics.LayoutContainerMetrics;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+
+/**
+ * A container tree compiled into a flat program, for trees whose structure stays the same while their root is laid out
+ * at many different sizes.
+ * 
+ * <p>Compiling walks the tree once: it measures it, builds each container's grid constraints (which don't depend on the
+ * container's size), and copies every element's metrics into one primitive buffer. The result is a list of blocks,
+ * one per container with parents ahead of their children. Each block sizes its tracks, then places its run of
+ * elements. Running the program executes the blocks in order, without iterating children, looking up metrics, or
+ * recursing, and allocates nothing.
+ * 
+ * <p>Results are the same as {@link Layout#layout(LayoutContainer, int, int, int, int, boolean)}, except that layout
+ * caches, viewports, and change sets aren't used. Before each run, the program checks that no container's
+ * {@link LayoutContainer#getLayoutVersion() layout version} has changed since it was compiled, and compiles itself again
+ * if one has. Since element metrics, container metrics, and natural sizes are all copied in at compile time, this is
+ * only correct if every container bumps its version whenever any of those change, not just when children are added or
+ * removed. {@link blue.endless.splinter.widget.ContainerWidget ContainerWidget} does this by listening to its metrics
+ * objects. Containers which don't report versions are assumed never to change; call {@link #compile()} after changing
+ * them.
+ * 
+ * <p>{@link #layout(int[], int[], int[])} runs the program at several root sizes in one pass, such as for side-by-side
+ * previews of a tree at different screen sizes. Each block sizes its tracks and places its elements once per size,
+ * reusing the track sizes whenever its container is the same width or height as it was at the previous size, and the
+ * results are stored into one primitive array instead of being handed to the containers.
+ * 
+ * <p>Containers with a {@link LayoutStrategy} aren't compiled. Their blocks hand the container and everything under it
+ * to {@link Layout} each run, so how much those subtrees allocate is up to their strategies.
+ */
+public class LayoutProgram {
+	private static final Alignment[] ALIGNMENTS = Alignment.values();
+	private static final GrowType[] GROW_TYPES = GrowType.values();
+	
+	//Per-element fields in elementData
+	private static final int CELL_X = 0;
+	private static final int CELL_Y = 1;
+	private static final int CELLS_X = 2;
+	private static final int CELLS_Y = 3;
+	private static final int PADDING_LEFT = 4;
+	private static final int PADDING_TOP = 5;
+	private static final int PADDING_RIGHT = 6;
+	private static final int PADDING_BOTTOM = 7;
+	private static final int GROW_X = 8;
+	private static final int GROW_Y = 9;
+	private static final int ALIGN_X = 10;
+	private static final int ALIGN_Y = 11;
+	private static final int FIXED_MIN_X = 12;
+	private static final int FIXED_MIN_Y = 13;
+	private static final int RELATIVE_MIN_X = 14;
+	private static final int RELATIVE_MIN_Y = 15;
+	private static final int NATURAL_X = 16;
+	private static final int NATURAL_Y = 17;
+	/** Index of the block for this element if it's a container, otherwise -1 */
+	private static final int BLOCK = 18;
+	private static final int ELEMENT_STRIDE = 19;
+	
+	//Per-block fields in blockData
+	private static final int FIRST_ELEMENT = 0;
+	private static final int PLACED_END = 1;
+	private static final int ELEMENTS_END = 2;
+	private static final int VERSION = 3;
+	/** 1 if the block's container has a LayoutStrategy, and is laid out by Layout instead of by the program */
+	private static final int DELEGATE = 4;
+	/** Index of the element which is this block's container, or -1 for the root */
+	private static final int OWNER = 5;
+	private static final int BLOCK_STRIDE = 6;
+	
+	private final LayoutContainer root;
+	private final boolean removeCollisions;
+	private final LayoutContext context = new LayoutContext();
+	
+	private LayoutContainer[] containers = new LayoutContainer[8];
+	private LayoutContainerMetrics[] containerMetrics = new LayoutContainerMetrics[8];
+	private GridMetrics[] grids = new GridMetrics[8];
+	private int[] blockData = new int[8*BLOCK_STRIDE];
+	/** x, y, width, height of each block's container, filled in by its parent's block as the program runs */
+	private int[] blockBounds = new int[8*4];
+	private int blockCount = 0;
+	
+	private LayoutElement[] elements = new LayoutElement[16];
+	private int[] elementData = new int[16*ELEMENT_STRIDE];
+	private int elementCount = 0;
+	
+	/** Receives an element's offset and size along one axis, or with {@link #place}, along both */
+	private final int[] placement = new int[4];
+	
+	/**
+	 * Compiles the tree under root.
+	 * @param root The container at the root of the tree
+	 * @param removeCollisions Whether overlapping elements should be removed, as in {@link Layout}
+	 */
+	public LayoutProgram(LayoutContainer root, boolean removeCollisions) {
+		this.root = root;
+		this.removeCollisions = removeCollisions;
+		compile();
+	}
+	
+	public LayoutContainer getRoot() { return root; }
+	
+	/** Gets the number of containers in the compiled tree */
+	public int getContainerCount() { return blockCount; }
+	
+	/**
+	 * Gets the number of elements, including containers other than the root, in the compiled tree. Compiles the program
+	 * again first if the tree has changed, so this is always the count the next {@link #layout(int[], int[], int[])}
+	 * will use, as long as nothing changes in between.
+	 */
+	public int getElementCount() {
+		if (!isValid()) compile();
+		return elementCount;
+	}
+	
+	/**
+	 * Gets an element of the compiled tree, compiling the program again first if the tree has changed. Elements are
+	 * numbered parents ahead of children, as in a batch layout.
+	 */
+	public LayoutElement getElement(int index) {
+		if (!isValid()) compile();
+		return elements[index];
+	}
+	
+	/**
+	 * Returns true if no container in the tree has changed its layout version since the program was compiled. Changes
+	 * to containers which don't bump their version on every metrics write can't be seen here.
+	 */
+	public boolean isValid() {
+		for(int i=0; i<blockCount; i++) {
+			if (containers[i].getLayoutVersion()!=blockData[i*BLOCK_STRIDE+VERSION]) return false;
+		}
+		return true;
+	}
+	
+	/** Compiles the program again from the current state of the tree */
+	public void compile() {
+		Arrays.fill(containers, 0, blockCount, null);
+		Arrays.fill(containerMetrics, 0, blockCount, null);
+		Arrays.fill(elements, 0, elementCount, null);
+		blockCount = 0;
+		elementCount = 0;
+		
+		Layout.measure(context, root);
+		addBlock(root);
+		
+		//Blocks are appended as their containers are found, so this visits the tree breadth-first
+		for(int block=0; block<blockCount; block++) {
+			LayoutContainer container = containers[block];
+			int base = block*BLOCK_STRIDE;
+			if (blockData[base+DELEGATE]==1) {
+				blockData[base+FIRST_ELEMENT] = elementCount;
+				blockData[base+PLACED_END] = elementCount;
+				blockData[base+ELEMENTS_END] = elementCount;
+				continue;
+			}
+			
+			GridMetrics grid = grids[block];
+			grid.clear();
+			Layout.buildGrid(context, container, grid, removeCollisions, null);
+			
+			blockData[base+FIRST_ELEMENT] = elementCount;
+			for(int i=0; i<context.elementCount; i++) {
+				OldLayoutElementMetrics metrics = context.metrics[i];
+				if (metrics.getCellX()<0 || metrics.getCellY()<0) context.removed[i] = true;
+				if (!context.removed[i]) addElement(context.elements[i], metrics, context.naturalWidths[i], context.naturalHeights[i]);
+			}
+			blockData[base+PLACED_END] = elementCount;
+			for(int i=0; i<context.elementCount; i++) {
+				if (context.removed[i]) addElement(context.elements[i], context.metrics[i], 0, 0);
+			}
+			blockData[base+ELEMENTS_END] = elementCount;
+			context.clearElements();
+			
+			//Only placed containers are laid out, as in Layout
+			for(int i=blockData[base+FIRST_ELEMENT]; i<blockData[base+PLACED_END]; i++) {
+				if (elements[i] instanceof LayoutContainer child) {
+					elementData[i*ELEMENT_STRIDE+BLOCK] = blockCount;
+					addBlock(child);
+					blockData[(blockCount-1)*BLOCK_STRIDE+OWNER] = i;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Lays out the tree at the given bounds, compiling it again first if it has changed.
+	 */
+	public void layout(int x, int y, int width, int height) {
+		if (!isValid()) compile();
+		
+		blockBounds[0] = x;
+		blockBounds[1] = y;
+		blockBounds[2] = width;
+		blockBounds[3] = height;
+		
+		for(int block=0; block<blockCount; block++) {
+			LayoutContainer container = containers[block];
+			LayoutContainerMetrics metrics = containerMetrics[block];
+			GridMetrics grid = grids[block];
+			int containerX = blockBounds[block*4];
+			int containerY = blockBounds[block*4+1];
+			int containerWidth = blockBounds[block*4+2];
+			int containerHeight = blockBounds[block*4+3];
+			
+			int base = block*BLOCK_STRIDE;
+			if (blockData[base+DELEGATE]==1) {
+				Layout.layout(context, container, containerX, containerY, containerWidth, containerHeight, removeCollisions, false, 0);
+				continue;
+			}
+			
+			Layout.solveAxis(context, grid, Axis.HORIZONTAL, containerWidth, metrics);
+			Layout.solveAxis(context, grid, Axis.VERTICAL, containerHeight, metrics);
+			container.setGridMetrics(grid);
+			
+			int cellPadding = metrics.getCellPadding();
+			boolean collapseMargins = metrics.getCollapseMargins();
+			int placedEnd = blockData[base+PLACED_END];
+			for(int i=blockData[base+FIRST_ELEMENT]; i<placedEnd; i++) {
+				int data = i*ELEMENT_STRIDE;
+				Layout.placeAxis(grid, Axis.HORIZONTAL, cellPadding, collapseMargins,
+						elementData[data+CELL_X], elementData[data+CELLS_X],
+						elementData[data+PADDING_LEFT], elementData[data+PADDING_RIGHT],
+						GROW_TYPES[elementData[data+GROW_X]], ALIGNMENTS[elementData[data+ALIGN_X]],
+						elementData[data+FIXED_MIN_X], elementData[data+RELATIVE_MIN_X], elementData[data+NATURAL_X],
+						containerWidth, placement);
+				int elemX = containerX + placement[0];
+				int elemWidth = placement[1];
+				
+				Layout.placeAxis(grid, Axis.VERTICAL, cellPadding, collapseMargins,
+						elementData[data+CELL_Y], elementData[data+CELLS_Y],
+						elementData[data+PADDING_TOP], elementData[data+PADDING_BOTTOM],
+						GROW_TYPES[elementData[data+GROW_Y]], ALIGNMENTS[elementData[data+ALIGN_Y]],
+						elementData[data+FIXED_MIN_Y], elementData[data+RELATIVE_MIN_Y], elementData[data+NATURAL_Y],
+						containerHeight, placement);
+				int elemY = containerY + placement[0];
+				int elemHeight = placement[1];
+				
+				container.setLayoutValues(elements[i], elemX, elemY, elemWidth, elemHeight);
+				
+				int child = elementData[data+BLOCK];
+				if (child>=0) {
+					blockBounds[child*4  ] = elemX;
+					blockBounds[child*4+1] = elemY;
+					blockBounds[child*4+2] = elemWidth;
+					blockBounds[child*4+3] = elemHeight;
+				}
+			}
+			
+			int elementsEnd = blockData[base+ELEMENTS_END];
+			for(int i=placedEnd; i<elementsEnd; i++) {
+				container.setLayoutValues(elements[i], 0, 0, 0, 0);
+			}
+			
+			container.setLayoutClean(containerX, containerY, containerWidth, containerHeight, removeCollisions);
+		}
+	}
+	
+	/**
+	 * Lays out the tree at several sizes in one pass, compiling it again first if it has changed. Nothing is notified of
+	 * the results; they're stored into bounds instead, with the root at (0, 0). The bounds of element e (see
+	 * {@link #getElement(int)}) at size s are at {@code bounds[(s*getElementCount() + e)*4]}, as x, y, width, height.
+	 * Elements removed from the layout get all zeroes. Containers with a LayoutStrategy are placed, but their children
+	 * aren't part of the program, so they have no bounds here.
+	 * @param widths the width of the root at each size
+	 * @param heights the height of the root at each size, in the same order
+	 * @param bounds an array of at least widths.length * getElementCount() * 4 elements, which receives the results
+	 * @throws IllegalArgumentException if bounds is too small for the tree as it is now, in which case nothing is written
+	 */
+	public void layout(int[] widths, int[] heights, int[] bounds) {
+		if (widths.length!=heights.length) throw new IllegalArgumentException("There must be as many heights as widths.");
+		if (!isValid()) compile();
+		int sizes = widths.length;
+		if (bounds.length<sizes*elementCount*4) throw new IllegalArgumentException("bounds holds "+bounds.length+" ints, but "+sizes+" sizes of "+elementCount+" elements need "+(sizes*elementCount*4)+".");
+		
+		for(int block=0; block<blockCount; block++) {
+			int base = block*BLOCK_STRIDE;
+			if (blockData[base+DELEGATE]==1) continue;
+			
+			LayoutContainerMetrics metrics = containerMetrics[block];
+			GridMetrics grid = grids[block];
+			int owner = blockData[base+OWNER];
+			int cellPadding = metrics.getCellPadding();
+			boolean collapseMargins = metrics.getCollapseMargins();
+			int placedEnd = blockData[base+PLACED_END];
+			int elementsEnd = blockData[base+ELEMENTS_END];
+			
+			int solvedWidth = -1;
+			int solvedHeight = -1;
+			for(int size=0; size<sizes; size++) {
+				int containerX = 0;
+				int containerY = 0;
+				int containerWidth = widths[size];
+				int containerHeight = heights[size];
+				if (owner>=0) {
+					//Parents come before children, so the container has already been placed at this size
+					int ownerBounds = (size*elementCount + owner)*4;
+					containerX = bounds[ownerBounds];
+					containerY = bounds[ownerBounds+1];
+					containerWidth = bounds[ownerBounds+2];
+					containerHeight = bounds[ownerBounds+3];
+				}
+				
+				//Each axis only depends on the container's size along it, so unchanged axes don't need solving again
+				if (size==0 || containerWidth!=solvedWidth) {
+					Layout.solveAxis(context, grid, Axis.HORIZONTAL, containerWidth, metrics);
+					solvedWidth = containerWidth;
+				}
+				if (size==0 || containerHeight!=solvedHeight) {
+					Layout.solveAxis(context, grid, Axis.VERTICAL, containerHeight, metrics);
+					solvedHeight = containerHeight;
+				}
+				
+				for(int i=blockData[base+FIRST_ELEMENT]; i<placedEnd; i++) {
+					place(grid, cellPadding, collapseMargins, i, containerWidth, containerHeight);
+					int out = (size*elementCount + i)*4;
+					bounds[out  ] = containerX + placement[0];
+					bounds[out+2] = placement[1];
+					bounds[out+1] = containerY + placement[2];
+					bounds[out+3] = placement[3];
+				}
+				for(int i=placedEnd; i<elementsEnd; i++) {
+					Arrays.fill(bounds, (size*elementCount + i)*4, (size*elementCount + i + 1)*4, 0);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Places element i of a solved grid, storing its x offset and width, then its y offset and height, into placement
+	 */
+	private void place(GridMetrics grid, int cellPadding, boolean collapseMargins, int i, int containerWidth, int containerHeight) {
+		int data = i*ELEMENT_STRIDE;
+		Layout.placeAxis(grid, Axis.HORIZONTAL, cellPadding, collapseMargins,
+				elementData[data+CELL_X], elementData[data+CELLS_X],
+				elementData[data+PADDING_LEFT], elementData[data+PADDING_RIGHT],
+				GROW_TYPES[elementData[data+GROW_X]], ALIGNMENTS[elementData[data+ALIGN_X]],
+				elementData[data+FIXED_MIN_X], elementData[data+RELATIVE_MIN_X], elementData[data+NATURAL_X],
+				containerWidth, placement);
+		placement[2] = placement[0];
+		placement[3] = placement[1];
+		Layout.placeAxis(grid, Axis.VERTICAL, cellPadding, collapseMargins,
+				elementData[data+CELL_Y], elementData[data+CELLS_Y],
+				elementData[data+PADDING_TOP], elementData[data+PADDING_BOTTOM],
+				GROW_TYPES[elementData[data+GROW_Y]], ALIGNMENTS[elementData[data+ALIGN_Y]],
+				elementData[data+FIXED_MIN_Y], elementData[data+RELATIVE_MIN_Y], elementData[data+NATURAL_Y],
+				containerHeight, placement);
+		//Swap so that placement holds x, width, y, height
+		int y = placement[0];
+		int height = placement[1];
+		placement[0] = placement[2];
+		placement[1] = placement[3];
+		placement[2] = y;
+		placement[3] = height;
+	}
+	
+	private void addBlock(LayoutContainer container) {
+		if (blockCount>=containers.length) {
+			int newSize = containers.length*2;
+			containers = Arrays.copyOf(containers, newSize);
+			containerMetrics = Arrays.copyOf(containerMetrics, newSize);
+			grids = Arrays.copyOf(grids, newSize);
+			blockData = Arrays.copyOf(blockData, newSize*BLOCK_STRIDE);
+			blockBounds = Arrays.copyOf(blockBounds, newSize*4);
+		}
+		containers[blockCount] = container;
+		containerMetrics[blockCount] = container.getLayoutContainerMetrics();
+		if (grids[blockCount]==null) grids[blockCount] = new GridMetrics();
+		blockData[blockCount*BLOCK_STRIDE+VERSION] = container.getLayoutVersion();
+		blockData[blockCount*BLOCK_STRIDE+DELEGATE] = (container.getLayoutStrategy()!=null) ? 1 : 0;
+		blockData[blockCount*BLOCK_STRIDE+OWNER] = -1;
+		blockCount++;
+	}
+	
+	private void addElement(LayoutElement elem, OldLayoutElementMetrics metrics, int naturalWidth, int naturalHeight) {
+		if (elementCount>=elements.length) {
+			int newSize = elements.length*2;
+			elements = Arrays.copyOf(elements, newSize);
+			elementData = Arrays.copyOf(elementData, newSize*ELEMENT_STRIDE);
+		}
+		elements[elementCount] = elem;
+		int data = elementCount*ELEMENT_STRIDE;
+		elementData[data+CELL_X] = metrics.getCellX();
+		elementData[data+CELL_Y] = metrics.getCellY();
+		elementData[data+CELLS_X] = metrics.getCellsX();
+		elementData[data+CELLS_Y] = metrics.getCellsY();
+		elementData[data+PADDING_LEFT] = metrics.getPaddingLeft();
+		elementData[data+PADDING_TOP] = metrics.getPaddingTop();
+		elementData[data+PADDING_RIGHT] = metrics.getPaddingRight();
+		elementData[data+PADDING_BOTTOM] = metrics.getPaddingBottom();
+		elementData[data+GROW_X] = metrics.getHorizontalGrowType().ordinal();
+		elementData[data+GROW_Y] = metrics.getVerticalGrowType().ordinal();
+		elementData[data+ALIGN_X] = metrics.getHorizontalAlignment().ordinal();
+		elementData[data+ALIGN_Y] = metrics.getVerticalAlignment().ordinal();
+		elementData[data+FIXED_MIN_X] = metrics.getFixedMinX();
+		elementData[data+FIXED_MIN_Y] = metrics.getFixedMinY();
+		elementData[data+RELATIVE_MIN_X] = metrics.getRelativeMinX();
+		elementData[data+RELATIVE_MIN_Y] = metrics.getRelativeMinY();
+		elementData[data+NATURAL_X] = naturalWidth;
+		elementData[data+NATURAL_Y] = naturalHeight;
+		elementData[data+BLOCK] = -1;
+		elementCount++;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lays out many independent container trees at once. Layout itself keeps no shared state, so the only thing standing
+ * between it and concurrent use is its scratch space; LayoutService lends each layout a LayoutContext from a pool for
+ * as long as it runs, so any number of threads may call into one LayoutService at the same time.
+ * 
+ * <p>Contexts belong to the service rather than to threads, so they're reused across whichever threads the executor
+ * happens to run jobs on, and idle threads don't hold onto any. The pool keeps at most a fixed number of idle contexts;
+ * if more layouts than that run at once, the extra contexts are created for them and dropped afterwards. Size the pool
+ * to the number of layouts expected to run at the same time, which for a fixed-size executor is its thread count.
+ * 
+ * <p>Each individual tree must still only be laid out by one thread at a time. Trees in a batch must not share
+ * containers with each other, or with trees in any other batch that may be running concurrently.
+ */
+public class LayoutService {
+	private final Executor executor;
+	/** Idle contexts, ready to be lent to the next layout */
+	private final ArrayBlockingQueue<LayoutContext> contexts;
+	
+	/** Creates a LayoutService which runs batches in the common ForkJoinPool, keeping one context per worker */
+	public LayoutService() {
+		this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+	}
+	
+	/**
+	 * Creates a LayoutService which runs batches on the given executor, keeping one context per available processor
+	 * @param executor The executor to run layout jobs on
+	 */
+	public LayoutService(Executor executor) {
+		this(executor, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Creates a LayoutService which runs batches on the given executor
+	 * @param executor The executor to run layout jobs on
+	 * @param maxIdleContexts The most LayoutContexts to keep for reuse between layouts
+	 * @throws IllegalArgumentException if maxIdleContexts is less than 1
+	 */
+	public LayoutService(Executor executor, int maxIdleContexts) {
+		if (maxIdleContexts<1) throw new IllegalArgumentException("LayoutService must keep at least one context.");
+		this.executor = executor;
+		this.contexts = new ArrayBlockingQueue<>(maxIdleContexts);
+	}
+	
+	/**
+	 * Lays out one tree on the calling thread, using a pooled LayoutContext.
+	 * @see Layout#layout(LayoutContext, LayoutContainer, int, int, int, int, boolean)
+	 */
+	public void layout(LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions) {
+		LayoutContext context = borrowContext();
+		try {
+			Layout.layout(context, container, x, y, width, height, removeCollisions);
+		} finally {
+			returnContext(context);
+		}
+	}
+	
+	/**
+	 * Incrementally lays out one tree on the calling thread, using a pooled LayoutContext.
+	 * @see Layout#relayout(LayoutContext, LayoutContainer, int, int, int, int, boolean)
+	 */
+	public void relayout(LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions) {
+		LayoutContext context = borrowContext();
+		try {
+			Layout.relayout(context, container, x, y, width, height, removeCollisions);
+		} finally {
+			returnContext(context);
+		}
+	}
+	
+	/** Gets the number of contexts currently idle in the pool */
+	public int getIdleContextCount() {
+		return contexts.size();
+	}
+	
+	/**
+	 * Lays out every root container at (0, 0, width, height), spread across this service's executor. Blocks until the
+	 * whole batch is done.
+	 * @param roots The root containers to lay out. Each must be the root of a separate tree.
+	 * @param width The width to lay out each root at
+	 * @param height The height to lay out each root at
+	 * @return timings for the batch
+	 * @throws java.util.concurrent.CompletionException if any layout in the batch failed. The rest of the batch still
+	 *         runs to completion.
+	 */
+	public BatchResult layoutAll(Collection<? extends LayoutContainer> roots, int width, int height) {
+		List<Job> jobs = new ArrayList<>(roots.size());
+		for(LayoutContainer root : roots) {
+			jobs.add(new Job(root, 0, 0, width, height, false));
+		}
+		return runAll(jobs);
+	}
+	
+	/**
+	 * Runs every job, spread across this service's executor. Blocks until the whole batch is done.
+	 * @param jobs The layouts to run. Each job's root must be the root of a separate tree.
+	 * @return timings for the batch
+	 * @throws java.util.concurrent.CompletionException if any layout in the batch failed. The rest of the batch still
+	 *         runs to completion.
+	 */
+	public BatchResult runAll(Collection<Job> jobs) {
+		long start = System.nanoTime();
+		
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[jobs.size()];
+		int i = 0;
+		for(Job job : jobs) {
+			futures[i] = CompletableFuture.runAsync(() -> layout(job.root(), job.x(), job.y(), job.width(), job.height(), job.removeCollisions()), executor);
+			i++;
+		}
+		CompletableFuture.allOf(futures).join();
+		
+		return new BatchResult(jobs.size(), System.nanoTime() - start);
+	}
+	
+	private LayoutContext borrowContext() {
+		LayoutContext context = contexts.poll();
+		return (context!=null) ? context : new LayoutContext();
+	}
+	
+	/** Puts a context back in the pool, or lets it go if the pool is already full */
+	private void returnContext(LayoutContext context) {
+		contexts.offer(context);
+	}
+	
+	/** One root container to lay out, and the bounds to lay it out at */
+	public static record Job(LayoutContainer root, int x, int y, int width, int height, boolean removeCollisions) {}
+	
+	/**
+	 * Timings for one batch.
+	 * @param layouts The number of root containers that were laid out
+	 * @param elapsedNanos The wall-clock time the whole batch took, in nanoseconds
+	 */
+	public static record BatchResult(int layouts, long elapsedNanos) {
+		/** Gets the number of root containers laid out per second of wall-clock time */
+		public double layoutsPerSecond() {
+			if (elapsedNanos<=0) return 0;
+			return layouts / (elapsedNanos / 1_000_000_000.0);
+		}
+	}
+}
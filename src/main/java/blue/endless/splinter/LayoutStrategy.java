@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter;
+
+/**
+ * Positions the children of a container in place of Layout's grid. Containers opt into one through
+ * {@link LayoutContainer#getLayoutStrategy()}. Layout still takes care of everything around solving the container:
+ * caching results, viewports, change sets, and laying out the insides of child containers.
+ */
+public interface LayoutStrategy {
+	/**
+	 * Solves the geometry of container's children at the given size, and records it into result: first every child
+	 * that's shown, through {@link LayoutCache.Entry#addPlaced(LayoutElement, int, int, int, int)} with coordinates
+	 * relative to the container's origin, then every child that isn't, through
+	 * {@link LayoutCache.Entry#addRemoved(LayoutElement)}.
+	 */
+	void solve(LayoutContainer container, int width, int height, LayoutCache.Entry result);
+	
+	/**
+	 * Works out the natural size of container into size[0] (width) and size[1] (height). The natural sizes of its
+	 * children are already known when this is called.
+	 */
+	void measure(LayoutContainer container, int[] size);
+}
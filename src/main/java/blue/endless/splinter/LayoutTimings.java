@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter;
+
+import blue.endless.splinter.data.Axis;
+
+/**
+ * How one container was solved, and how many nanoseconds each phase of solving it took. Handed to a
+ * {@link LayoutListener}. Phases which run once per axis are totalled across both axes.
+ */
+public class LayoutTimings {
+	public static enum Phase {
+		/** Collecting the children and their metrics, and merging them into the grid */
+		COLLECT,
+		/** Giving each row and column its initial size, from the elements which occupy only it */
+		SET_INITIAL,
+		/** Stretching rows and columns to satisfy elements which span several of them */
+		STRETCH_CONSTRAINTS,
+		/** Growing rows and columns which don't have a size declared into the remaining space */
+		STRETCH_UNSPECIFIED,
+		/** Sharing out the space left over between all rows and columns */
+		LEFTOVER,
+		/** Working out where each row and column starts, and stretching the last one to fill any shortfall */
+		STRETCH_END,
+		/** Working out the geometry of each child within its cells */
+		PLACEMENT;
+	}
+	
+	private static final Phase[] PHASES = Phase.values();
+	
+	private final long[] nanos = new long[PHASES.length];
+	private int depth;
+	private int childCount;
+	private int gridWidth;
+	private int gridHeight;
+	private int xConstraints;
+	private int yConstraints;
+	private Axis reusedAxis;
+	
+	/** Gets how deep the container is below the root of the layout it was solved in. The root is at depth zero. */
+	public int getDepth() { return depth; }
+	/** Gets the number of children the container has, including any that were removed from its layout */
+	public int getChildCount() { return childCount; }
+	/** Gets the number of columns in the container's grid */
+	public int getGridWidth() { return gridWidth; }
+	/** Gets the number of rows in the container's grid */
+	public int getGridHeight() { return gridHeight; }
+	/** Gets the number of elements which span more than one column and have a minimum width */
+	public int getXConstraints() { return xConstraints; }
+	/** Gets the number of elements which span more than one row and have a minimum height */
+	public int getYConstraints() { return yConstraints; }
+	/** Gets the axis which was copied from an earlier layout of the container instead of being solved, if any */
+	public Axis getReusedAxis() { return reusedAxis; }
+	
+	/** Gets the number of nanoseconds spent in one phase */
+	public long getNanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+	
+	/** Gets the number of nanoseconds spent solving the container, across all phases */
+	public long getTotalNanos() {
+		long result = 0;
+		for(int i=0; i<nanos.length; i++) result += nanos[i];
+		return result;
+	}
+	
+	void reset(int depth, Axis reusedAxis) {
+		for(int i=0; i<nanos.length; i++) nanos[i] = 0;
+		this.depth = depth;
+		this.reusedAxis = reusedAxis;
+	}
+	
+	void setGrid(int childCount, int gridWidth, int gridHeight, int xConstraints, int yConstraints) {
+		this.childCount = childCount;
+		this.gridWidth = gridWidth;
+		this.gridHeight = gridHeight;
+		this.xConstraints = xConstraints;
+		this.yConstraints = yConstraints;
+	}
+	
+	/** Adds the time since start to phase, and returns the current time so that it can start the next phase */
+	long lap(Phase phase, long start) {
+		long now = System.nanoTime();
+		nanos[phase.ordinal()] += now - start;
+		return now;
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter;
+
+import blue.endless.splinter.data.Axis;
+import blue.endless.splinter.metrics.GridMetrics;
+import blue.endless.splinter.metrics.LayoutContainerMetrics;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+
+/**
+ * Fast path for containers whose children form a single row or column: one child per cell, occupying cells 0, 1, 2...
+ * along the stack in the same order as the container lists them, and cell 0 across it. Toolbars and list rows look
+ * like this, and make up most containers in a typical tree.
+ * 
+ * <p>For these containers the grid is always dense, nothing can collide, and there are no multi-cell constraints, so
+ * the tracks are filled in with one pass over the element list, indexing tracks by child, and elements are placed by
+ * reading their track directly instead of looking their cells up. Every child sizes its own track along the stack,
+ * and the single track across the stack takes the largest of them all. Growth and alignment work exactly as they do
+ * on the grid (unspecified tracks grow first, then leftover space is shared equally, or taken away equally if there's
+ * a shortfall), so containers get the same result whichever path they take.
+ */
+final class LinearLayout {
+	private LinearLayout() {}
+	
+	/**
+	 * Gets the axis the elements in the context's element list are stacked along, or null if they don't form a single
+	 * row or column. A single element counts as a row.
+	 */
+	static Axis getStackAxis(LayoutContext context) {
+		int count = context.elementCount;
+		if (count==0) return null;
+		
+		boolean row = true;
+		boolean column = true;
+		for(int i=0; i<count; i++) {
+			OldLayoutElementMetrics metrics = context.metrics[i];
+			if (metrics.getCellsX()!=1 || metrics.getCellsY()!=1) return null;
+			row &= metrics.getCellX()==i && metrics.getCellY()==0;
+			column &= metrics.getCellY()==i && metrics.getCellX()==0;
+			if (!row && !column) return null;
+		}
+		return (row) ? Axis.HORIZONTAL : Axis.VERTICAL;
+	}
+	
+	/**
+	 * Fills in the tracks of gridMetrics, which must be clear, from the context's elements, which must be stacked along
+	 * stackAxis. If skipAxis is non-null, the tracks along it are left empty.
+	 */
+	static void buildGrid(LayoutContext context, GridMetrics gridMetrics, LayoutContainerMetrics containerMetrics, Axis stackAxis, Axis skipAxis) {
+		int count = context.elementCount;
+		gridMetrics.allocateDense(stackAxis.choose(count, 1), stackAxis.choose(1, count));
+		gridMetrics.addContainerMetrics(containerMetrics);
+		
+		if (skipAxis!=Axis.HORIZONTAL) addTracks(context, gridMetrics, containerMetrics, Axis.HORIZONTAL, stackAxis==Axis.HORIZONTAL);
+		if (skipAxis!=Axis.VERTICAL) addTracks(context, gridMetrics, containerMetrics, Axis.VERTICAL, stackAxis==Axis.VERTICAL);
+	}
+	
+	private static void addTracks(LayoutContext context, GridMetrics gridMetrics, LayoutContainerMetrics containerMetrics, Axis axis, boolean along) {
+		GridMetrics.Tracks tracks = gridMetrics.getTracks(axis);
+		int[] naturalSizes = axis.choose(context.naturalWidths, context.naturalHeights);
+		int cellPadding = containerMetrics.getCellPadding();
+		//GridMetrics decides trailing padding against the grid's width along both axes, so this does too
+		int lastColumn = gridMetrics.width-1;
+		
+		if (along) {
+			for(int i=0; i<context.elementCount; i++) {
+				OldLayoutElementMetrics metrics = context.metrics[i];
+				int fixedMin = Math.max(axis.choose(metrics.getFixedMinX(), metrics.getFixedMinY()), naturalSizes[i]);
+				int paddingLeading = cellPadding; if (i>0) paddingLeading /= 2;
+				int paddingTrailing = cellPadding; if (i<lastColumn) paddingTrailing /= 2;
+				tracks.fixedSize[i] = (fixedMin>0) ? fixedMin+paddingLeading+paddingTrailing : 0;
+				tracks.relativeSize[i] = Math.max(0, axis.choose(metrics.getRelativeMinX(), metrics.getRelativeMinY()));
+			}
+		} else {
+			int paddingLeading = cellPadding;
+			int paddingTrailing = cellPadding; if (lastColumn>0) paddingTrailing /= 2;
+			int fixedSize = 0;
+			int relativeSize = 0;
+			for(int i=0; i<context.elementCount; i++) {
+				OldLayoutElementMetrics metrics = context.metrics[i];
+				int fixedMin = Math.max(axis.choose(metrics.getFixedMinX(), metrics.getFixedMinY()), naturalSizes[i]);
+				if (fixedMin>0) fixedSize = Math.max(fixedSize, fixedMin+paddingLeading+paddingTrailing);
+				relativeSize = Math.max(relativeSize, axis.choose(metrics.getRelativeMinX(), metrics.getRelativeMinY()));
+			}
+			tracks.fixedSize[0] = fixedSize;
+			tracks.relativeSize[0] = relativeSize;
+		}
+	}
+	
+	/**
+	 * Works out an element's offset and size along one axis of a solved stack, and stores them into the first two
+	 * elements of placement.
+	 */
+	static void placeAxis(GridMetrics gridMetrics, LayoutContainerMetrics containerMetrics, OldLayoutElementMetrics metrics, Axis axis, int naturalSize, int totalSize, int[] placement) {
+		GridMetrics.Tracks tracks = gridMetrics.getTracks(axis);
+		int cell = axis.choose(metrics.getCellX(), metrics.getCellY());
+		int cellPadding = containerMetrics.getCellPadding();
+		int paddingLeading = cellPadding; if (cell>0) paddingLeading /= 2;
+		int paddingTrailing = cellPadding; if (cell<tracks.count-1) paddingTrailing /= 2;
+		
+		Layout.placeInCell(tracks.location[cell], tracks.size[cell], paddingLeading, paddingTrailing, containerMetrics.getCollapseMargins(),
+				axis.choose(metrics.getPaddingLeft(), metrics.getPaddingTop()),
+				axis.choose(metrics.getPaddingRight(), metrics.getPaddingBottom()),
+				axis.choose(metrics.getHorizontalGrowType(), metrics.getVerticalGrowType()),
+				axis.choose(metrics.getHorizontalAlignment(), metrics.getVerticalAlignment()),
+				axis.choose(metrics.getFixedMinX(), metrics.getFixedMinY()),
+				axis.choose(metrics.getRelativeMinX(), metrics.getRelativeMinY()),
+				naturalSize, totalSize, placement);
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out container trees using a ForkJoinPool. Once a container's grid is solved, its children's rectangles are
+ * known and their subtrees no longer depend on each other, so if a container has at least {@link #getThreshold()}
+ * child containers, each of those subtrees is laid out as a separate task. Containers with fewer child containers
+ * are recursed into sequentially, exactly as {@link Layout} would.
+ * 
+ * <p>Results are identical to sequential layout. setLayoutValues and setGridMetrics are only ever called for a given
+ * container from one thread at a time, but sibling containers may be called from different threads concurrently.
+ */
+public class ParallelLayout {
+	public static final int DEFAULT_THRESHOLD = 4;
+	
+	private final ForkJoinPool pool;
+	private final int threshold;
+	private final ConcurrentLinkedQueue<LayoutContext> contexts = new ConcurrentLinkedQueue<>();
+	
+	public ParallelLayout() {
+		this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+	
+	/**
+	 * @param pool The pool to run layout tasks in
+	 * @param threshold The minimum number of child containers a container must have for them to be laid out in parallel
+	 */
+	public ParallelLayout(ForkJoinPool pool, int threshold) {
+		if (threshold<1) throw new IllegalArgumentException("Threshold must be at least 1.");
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+	
+	public int getThreshold() {
+		return threshold;
+	}
+	
+	/**
+	 * Works like {@link Layout#layout(LayoutContainer, int, int, int, int, boolean)}, but lays out independent subtrees
+	 * in parallel. Blocks until the whole tree is laid out.
+	 */
+	public void layout(LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions) {
+		measure(container);
+		pool.invoke(new SubtreeTask(this, container, x, y, width, height, removeCollisions, false));
+	}
+	
+	/**
+	 * Works like {@link Layout#relayout(LayoutContainer, int, int, int, int, boolean)}, but lays out independent
+	 * subtrees in parallel. Blocks until the whole tree is laid out.
+	 */
+	public void relayout(LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions) {
+		measure(container);
+		pool.invoke(new SubtreeTask(this, container, x, y, width, height, removeCollisions, true));
+	}
+	
+	/** Measures natural sizes before layout. This is sequential, but mostly skips subtrees that haven't changed. */
+	private void measure(LayoutContainer container) {
+		LayoutContext context = borrowContext();
+		try {
+			Layout.measure(context, container);
+		} finally {
+			returnContext(context);
+		}
+	}
+	
+	/** Returns true if the children of the solved container in result should be laid out in parallel */
+	boolean shouldFork(LayoutCache.Entry result) {
+		int containers = 0;
+		for(int i=0; i<result.placedCount(); i++) {
+			if (result.getElement(i) instanceof LayoutContainer) {
+				containers++;
+				if (containers>=threshold) return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Lays out every child container in result as its own task, and waits for all of them to finish. Must be called
+	 * from inside this ParallelLayout's pool.
+	 */
+	void layoutChildren(LayoutCache.Entry result, int x, int y, boolean removeCollisions, boolean incremental) {
+		int containers = 0;
+		for(int i=0; i<result.placedCount(); i++) {
+			if (result.getElement(i) instanceof LayoutContainer) containers++;
+		}
+		
+		SubtreeTask[] tasks = new SubtreeTask[containers];
+		int taskIndex = 0;
+		for(int i=0; i<result.placedCount(); i++) {
+			if (result.getElement(i) instanceof LayoutContainer child) {
+				tasks[taskIndex] = new SubtreeTask(this, child,
+						x + result.getX(i), y + result.getY(i), result.getWidth(i), result.getHeight(i),
+						removeCollisions, incremental);
+				taskIndex++;
+			}
+		}
+		
+		RecursiveAction.invokeAll(tasks);
+	}
+	
+	/*
+	 * Contexts are handed out per task rather than per thread: a worker waiting on a join can pick up another task,
+	 * which must not share the waiting task's context.
+	 */
+	private LayoutContext borrowContext() {
+		LayoutContext context = contexts.poll();
+		if (context==null) {
+			context = new LayoutContext();
+			context.parallel = this;
+		}
+		return context;
+	}
+	
+	private void returnContext(LayoutContext context) {
+		contexts.offer(context);
+	}
+	
+	@SuppressWarnings("serial")
+	private static class SubtreeTask extends RecursiveAction {
+		private final ParallelLayout parallel;
+		private final LayoutContainer container;
+		private final int x;
+		private final int y;
+		private final int width;
+		private final int height;
+		private final boolean removeCollisions;
+		private final boolean incremental;
+		
+		public SubtreeTask(ParallelLayout parallel, LayoutContainer container, int x, int y, int width, int height, boolean removeCollisions, boolean incremental) {
+			this.parallel = parallel;
+			this.container = container;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			this.removeCollisions = removeCollisions;
+			this.incremental = incremental;
+		}
+		
+		@Override
+		protected void compute() {
+			LayoutContext context = parallel.borrowContext();
+			try {
+				Layout.layout(context, container, x, y, width, height, removeCollisions, incremental, 0);
+			} finally {
+				parallel.returnContext(context);
+			}
+		}
+	}
+}
@@ -0,0 +1,547 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter;
+
+import java.util.Arrays;
+
+import blue.endless.splinter.data.Axis;
+import blue.endless.splinter.metrics.GridMetrics;
+import blue.endless.splinter.metrics.LayoutContainerMetrics;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+
+/**
+ * One container's layout, solved ahead of time over a range of widths and heights, for live resizing and resize
+ * animations.
+ * 
+ * <p>The two axes of a grid are solved independently, so a child's x and width only depend on the container's width,
+ * and its y and height on the container's height. Each of those values is split into pieces, and within a piece it's
+ * a stepped function of t, the container size counted from the start of the piece:
+ * {@code a + c*t + k * floor((m*t + p) / d)}, where c is 0 or 1. Constant values, values that grow one pixel per pixel,
+ * percentages of the container, offsets past tracks which split the leftover space evenly, and the last track, which
+ * takes whatever the even split leaves over, each fit in one piece. Building a ParametricLayout solves each axis once
+ * per size in its range, and fits the fewest pieces that reproduce the results at every size, so evaluating one is
+ * exactly the same as calling {@link Layout#layout(LayoutContainer, int, int, int, int, boolean)} at that size.
+ * Evaluating costs a binary search over each value's pieces, usually of length one, and a few multiply-adds.
+ * 
+ * <p>Values which sum several percentages don't fit one piece and take more pieces, but are never inexact. Each
+ * value keeps only its own pieces, so one of these doesn't split the others.
+ * 
+ * <p>Building costs one axis solve per size, so ranges are limited to {@link #MAX_RANGE} sizes per axis. The solved
+ * table is dropped once it's fitted. If the ParametricLayout is used at a size outside its range, that axis is rebuilt
+ * over a range of the same length centered on the new size: sizes which were in the old range are read back from the
+ * fitted pieces, and only the new sizes are solved.
+ * 
+ * <p>If the container's layout version changes, the ParametricLayout is rebuilt from scratch over the same ranges the
+ * next time it's used. Metrics are copied in when it's built, so this relies on the container bumping its version
+ * whenever its children or any of their metrics change, as {@link blue.endless.splinter.widget.ContainerWidget
+ * ContainerWidget} does. Containers with a {@link LayoutStrategy} can't be laid out parametrically.
+ */
+public class ParametricLayout {
+	//Per-piece function fields in AxisFunction.params
+	private static final int BASE = 0;
+	private static final int LINEAR = 1;
+	private static final int MULTIPLIER = 2;
+	private static final int NUMERATOR = 3;
+	private static final int DIVISOR = 4;
+	private static final int PHASE = 5;
+	private static final int FUNCTION_STRIDE = 6;
+	
+	/** The largest number of sizes a ParametricLayout will solve along one axis */
+	public static final int MAX_RANGE = 4096;
+	
+	private final LayoutContainer container;
+	private final boolean removeCollisions;
+	private final LayoutContext context = new LayoutContext();
+	private final GridMetrics grid = new GridMetrics();
+	private final AxisFunction horizontal = new AxisFunction();
+	private final AxisFunction vertical = new AxisFunction();
+	private int version;
+	
+	private LayoutElement[] elements = new LayoutElement[8];
+	private OldLayoutElementMetrics[] metrics = new OldLayoutElementMetrics[8];
+	private int[] naturalWidths = new int[8];
+	private int[] naturalHeights = new int[8];
+	private int placedCount = 0;
+	private int elementCount = 0;
+	
+	private final int[] placement = new int[2];
+	
+	/**
+	 * Solves container over the given ranges of sizes, inclusive.
+	 * @throws IllegalArgumentException if a range is empty, negative, or longer than {@link #MAX_RANGE}, or the container
+	 *         has a LayoutStrategy
+	 */
+	public ParametricLayout(LayoutContainer container, int minWidth, int maxWidth, int minHeight, int maxHeight, boolean removeCollisions) {
+		if (minWidth<0 || minHeight<0 || maxWidth<minWidth || maxHeight<minHeight) throw new IllegalArgumentException("Size ranges must be non-negative and non-empty.");
+		if (maxWidth-minWidth>=MAX_RANGE || maxHeight-minHeight>=MAX_RANGE) throw new IllegalArgumentException("Size ranges can't be longer than "+MAX_RANGE+".");
+		this.container = container;
+		this.removeCollisions = removeCollisions;
+		horizontal.min = minWidth;
+		horizontal.max = maxWidth;
+		vertical.min = minHeight;
+		vertical.max = maxHeight;
+		build();
+	}
+	
+	public LayoutContainer getContainer() { return container; }
+	
+	/**
+	 * Returns true if the container's layout version hasn't changed since this layout was built. Changes to containers
+	 * which don't bump their version on every metrics write can't be seen here.
+	 */
+	public boolean isValid() {
+		return container.getLayoutVersion()==version;
+	}
+	
+	/** Returns true if this layout covers the given size without being rebuilt */
+	public boolean covers(int width, int height) {
+		return width>=horizontal.min && width<=horizontal.max && height>=vertical.min && height<=vertical.max;
+	}
+	
+	/** Gets the sizes along an axis at which any child's function changes, starting with the low end of the range */
+	public int[] getBreakpoints(Axis axis) {
+		AxisFunction function = axis.choose(horizontal, vertical);
+		int[] result = Arrays.copyOf(function.starts, function.firstPiece[function.valueCount]);
+		Arrays.sort(result);
+		int count = 0;
+		for(int i=0; i<result.length; i++) {
+			if (i==0 || result[i]!=result[count-1]) result[count++] = result[i];
+		}
+		return Arrays.copyOf(result, count);
+	}
+	
+	/**
+	 * Gets the number of pieces stored for an axis, summed over every child's offset and size. Each one takes
+	 * seven ints, so this is a measure of how compact the layout is.
+	 */
+	public int getPieceCount(Axis axis) {
+		AxisFunction function = axis.choose(horizontal, vertical);
+		return function.firstPiece[function.valueCount];
+	}
+	
+	/** Gets the number of children shown by this layout */
+	public int placedCount() { return placedCount; }
+	
+	/** Gets the index'th child shown by this layout, in the order the container lists them */
+	public LayoutElement getElement(int index) { return elements[index]; }
+	
+	/**
+	 * Evaluates the layout at the given container size, without notifying anything, and stores the bounds of each
+	 * shown child, relative to the container's origin, into bounds as x, y, width, height, in order.
+	 * @param bounds an array of at least {@link #placedCount()} * 4 elements
+	 */
+	public void evaluate(int width, int height, int[] bounds) {
+		prepare(width, height);
+		for(int i=0; i<placedCount; i++) {
+			bounds[i*4  ] = horizontal.evaluate(i*2, width);
+			bounds[i*4+1] = vertical.evaluate(i*2, height);
+			bounds[i*4+2] = horizontal.evaluate(i*2+1, width);
+			bounds[i*4+3] = vertical.evaluate(i*2+1, height);
+		}
+	}
+	
+	/**
+	 * Lays out the container at the given bounds, as {@link Layout#layout(LayoutContainer, int, int, int, int, boolean)}
+	 * would. Child containers are laid out by Layout as usual. The container isn't passed GridMetrics.
+	 */
+	public void layout(int x, int y, int width, int height) {
+		prepare(width, height);
+		for(int i=0; i<placedCount; i++) {
+			int elemX = x + horizontal.evaluate(i*2, width);
+			int elemY = y + vertical.evaluate(i*2, height);
+			int elemWidth = horizontal.evaluate(i*2+1, width);
+			int elemHeight = vertical.evaluate(i*2+1, height);
+			LayoutElement elem = elements[i];
+			container.setLayoutValues(elem, elemX, elemY, elemWidth, elemHeight);
+			if (elem instanceof LayoutContainer child) {
+				Layout.layout(context, child, elemX, elemY, elemWidth, elemHeight, removeCollisions, false, 1);
+			}
+		}
+		for(int i=placedCount; i<elementCount; i++) {
+			container.setLayoutValues(elements[i], 0, 0, 0, 0);
+		}
+		container.setLayoutClean(x, y, width, height, removeCollisions);
+	}
+	
+	/** Rebuilds whatever's needed so that this layout is current and covers the given size */
+	private void prepare(int width, int height) {
+		if (!isValid()) build();
+		if (width<horizontal.min || width>horizontal.max) {
+			horizontal.recenter(width);
+			solve(horizontal, Axis.HORIZONTAL);
+		}
+		if (height<vertical.min || height>vertical.max) {
+			vertical.recenter(height);
+			solve(vertical, Axis.VERTICAL);
+		}
+	}
+	
+	private void build() {
+		if (container.getLayoutStrategy()!=null) throw new IllegalArgumentException("Containers with a LayoutStrategy can't be laid out parametrically.");
+		version = container.getLayoutVersion();
+		
+		//The grid's constraints don't depend on the container's size, so they're only built once
+		Layout.measure(context, container);
+		grid.clear();
+		Layout.buildGrid(context, container, grid, removeCollisions, null);
+		
+		Arrays.fill(elements, 0, elementCount, null);
+		Arrays.fill(metrics, 0, elementCount, null);
+		elementCount = 0;
+		for(int i=0; i<context.elementCount; i++) {
+			OldLayoutElementMetrics elemMetrics = context.metrics[i];
+			if (elemMetrics.getCellX()<0 || elemMetrics.getCellY()<0) context.removed[i] = true;
+			if (!context.removed[i]) addElement(context.elements[i], elemMetrics, context.naturalWidths[i], context.naturalHeights[i]);
+		}
+		placedCount = elementCount;
+		for(int i=0; i<context.elementCount; i++) {
+			if (context.removed[i]) addElement(context.elements[i], context.metrics[i], 0, 0);
+		}
+		context.clearElements();
+		
+		horizontal.forgetSolved();
+		vertical.forgetSolved();
+		solve(horizontal, Axis.HORIZONTAL);
+		solve(vertical, Axis.VERTICAL);
+	}
+	
+	private void addElement(LayoutElement elem, OldLayoutElementMetrics elemMetrics, int naturalWidth, int naturalHeight) {
+		if (elementCount>=elements.length) {
+			int newSize = elements.length*2;
+			elements = Arrays.copyOf(elements, newSize);
+			metrics = Arrays.copyOf(metrics, newSize);
+			naturalWidths = Arrays.copyOf(naturalWidths, newSize);
+			naturalHeights = Arrays.copyOf(naturalHeights, newSize);
+		}
+		elements[elementCount] = elem;
+		metrics[elementCount] = elemMetrics;
+		naturalWidths[elementCount] = naturalWidth;
+		naturalHeights[elementCount] = naturalHeight;
+		elementCount++;
+	}
+	
+	/**
+	 * Solves one axis at every size in its range which wasn't covered by the previous range, then fits each child's
+	 * offset and size to the results
+	 */
+	private void solve(AxisFunction function, Axis axis) {
+		LayoutContainerMetrics containerMetrics = container.getLayoutContainerMetrics();
+		int cellPadding = containerMetrics.getCellPadding();
+		boolean collapseMargins = containerMetrics.getCollapseMargins();
+		int[] naturalSizes = axis.choose(naturalWidths, naturalHeights);
+		
+		//values holds one row per size, each with an offset and a size for each placed child. It's only needed until fitted.
+		int sizes = (function.max - function.min) + 1;
+		int stride = placedCount*2;
+		int[] values = new int[sizes*stride];
+		
+		//The previous range's pieces are exact, so sizes it covered are read back from them instead of solved again
+		int keepMin = Math.max(function.min, function.solvedMin);
+		int keepMax = Math.min(function.max, function.solvedMax);
+		
+		for(int s=0; s<sizes; s++) {
+			int totalSize = function.min + s;
+			if (totalSize>=keepMin && totalSize<=keepMax) {
+				for(int v=0; v<stride; v++) values[s*stride + v] = function.evaluate(v, totalSize);
+				continue;
+			}
+			Layout.solveAxis(context, grid, axis, totalSize, containerMetrics);
+			for(int i=0; i<placedCount; i++) {
+				OldLayoutElementMetrics elemMetrics = metrics[i];
+				Layout.placeAxis(grid, axis, cellPadding, collapseMargins,
+						axis.choose(elemMetrics.getCellX(), elemMetrics.getCellY()),
+						axis.choose(elemMetrics.getCellsX(), elemMetrics.getCellsY()),
+						axis.choose(elemMetrics.getPaddingLeft(), elemMetrics.getPaddingTop()),
+						axis.choose(elemMetrics.getPaddingRight(), elemMetrics.getPaddingBottom()),
+						axis.choose(elemMetrics.getHorizontalGrowType(), elemMetrics.getVerticalGrowType()),
+						axis.choose(elemMetrics.getHorizontalAlignment(), elemMetrics.getVerticalAlignment()),
+						axis.choose(elemMetrics.getFixedMinX(), elemMetrics.getFixedMinY()),
+						axis.choose(elemMetrics.getRelativeMinX(), elemMetrics.getRelativeMinY()),
+						naturalSizes[i], totalSize, placement);
+				values[s*stride + i*2] = placement[0];
+				values[s*stride + i*2+1] = placement[1];
+			}
+		}
+		
+		function.solvedMin = function.min;
+		function.solvedMax = function.max;
+		function.fit(values, sizes, stride);
+	}
+	
+	/**
+	 * The offset and size of every child along one axis, as functions of the container's size along it. Each value is
+	 * stored as its own list of pieces.
+	 */
+	private static final class AxisFunction {
+		int min;
+		int max;
+		int valueCount = 0;
+		/** Where each value's pieces begin in starts and params, plus one more entry marking the end of the last */
+		int[] firstPiece = new int[1];
+		/** The first size of each piece, ascending within each value */
+		int[] starts = new int[0];
+		/** {@link #FUNCTION_STRIDE} function fields per piece */
+		int[] params = new int[0];
+		/** The piece each value was last evaluated in */
+		int[] lastPiece = new int[0];
+		/** The range the current pieces were fitted over, which may be reused when recentering */
+		int solvedMin = 0;
+		int solvedMax = -1;
+		
+		//Scratch space for fitting, holding the convex hulls of the points in the piece being fitted
+		private int[] lowerX = new int[0];
+		private int[] lowerY = new int[0];
+		private int[] upperX = new int[0];
+		private int[] upperY = new int[0];
+		private final long[] slope = new long[2];
+		private final int[] candidate = new int[FUNCTION_STRIDE];
+		
+		/** Marks the current pieces as stale, for when the container itself has changed */
+		void forgetSolved() {
+			solvedMin = 0;
+			solvedMax = -1;
+		}
+		
+		void recenter(int size) {
+			int length = max - min;
+			min = Math.max(0, size - length/2);
+			max = min + length;
+		}
+		
+		int evaluate(int value, int size) {
+			int first = firstPiece[value];
+			int end = firstPiece[value+1];
+			int piece = first;
+			if (end-first>1) {
+				//Sizes usually change a little at a time, so try the last piece used, and the next one, before searching
+				piece = lastPiece[value];
+				if (size<starts[piece] || (piece+2<end && size>=starts[piece+2])) {
+					piece = Arrays.binarySearch(starts, first, end, size);
+					if (piece<0) piece = -piece-2;
+					lastPiece[value] = piece;
+				} else if (piece+1<end && size>=starts[piece+1]) {
+					piece++;
+					lastPiece[value] = piece;
+				}
+			}
+			int base = piece*FUNCTION_STRIDE;
+			int t = size - starts[piece];
+			int steps = Math.floorDiv(params[base+NUMERATOR] * t + params[base+PHASE], params[base+DIVISOR]);
+			return params[base+BASE] + params[base+LINEAR] * t + params[base+MULTIPLIER] * steps;
+		}
+		
+		/**
+		 * Fits every value in a table of solved results, replacing the current pieces.
+		 * @param values one row per size in this function's range, each holding stride values
+		 */
+		void fit(int[] values, int sizes, int stride) {
+			if (lowerX.length<sizes) {
+				lowerX = new int[sizes];
+				lowerY = new int[sizes];
+				upperX = new int[sizes];
+				upperY = new int[sizes];
+			}
+			
+			int[] newStarts = new int[stride];
+			int[] newParams = new int[stride*FUNCTION_STRIDE];
+			int[] fitted = new int[FUNCTION_STRIDE];
+			int count = 0;
+			valueCount = stride;
+			if (firstPiece.length<stride+1) firstPiece = new int[stride+1];
+			for(int v=0; v<stride; v++) {
+				firstPiece[v] = count;
+				int start = 0;
+				while(start<sizes) {
+					int end = fitPiece(values, sizes, stride, v, start, fitted);
+					if (count>=newStarts.length) {
+						newStarts = Arrays.copyOf(newStarts, count*2);
+						newParams = Arrays.copyOf(newParams, count*2*FUNCTION_STRIDE);
+					}
+					newStarts[count] = min + start;
+					System.arraycopy(fitted, 0, newParams, count*FUNCTION_STRIDE, FUNCTION_STRIDE);
+					count++;
+					start = end;
+				}
+			}
+			firstPiece[stride] = count;
+			starts = Arrays.copyOf(newStarts, count);
+			params = Arrays.copyOf(newParams, count*FUNCTION_STRIDE);
+			if (lastPiece.length<stride) lastPiece = new int[stride];
+			System.arraycopy(firstPiece, 0, lastPiece, 0, stride);
+		}
+		
+		/**
+		 * Fits the longest piece of value v starting at row start, storing its function into fitted, and returns the row
+		 * after the piece ends. Tries the piece with and without a linear term, and with k either 1 or the value's first
+		 * step, since greedily taking the longest piece each time gives the fewest pieces.
+		 */
+		private int fitPiece(int[] values, int sizes, int stride, int v, int start, int[] fitted) {
+			int first = values[start*stride + v];
+			int bestEnd = -1;
+			for(int linear=0; linear<=1; linear++) {
+				int step = 0;
+				for(int row=start+1; row<sizes && step==0; row++) step = values[row*stride + v] - linear*(row-start) - first;
+				
+				int end = fitLine(values, sizes, stride, v, start, linear, 1, candidate);
+				if (end>bestEnd) {
+					bestEnd = end;
+					System.arraycopy(candidate, 0, fitted, 0, FUNCTION_STRIDE);
+				}
+				if (step>1 || step<-1) {
+					end = fitLine(values, sizes, stride, v, start, linear, step, candidate);
+					if (end>bestEnd) {
+						bestEnd = end;
+						System.arraycopy(candidate, 0, fitted, 0, FUNCTION_STRIDE);
+					}
+				}
+			}
+			return bestEnd;
+		}
+		
+		/**
+		 * Fits the longest piece of the form {@code a + linear*t + multiplier * floor((m*t + p) / d)} to value v, starting
+		 * at row start, storing its function into fitted, and returns the row after the piece ends.
+		 * 
+		 * <p>Once a and the linear term are taken away and the rest is divided by multiplier, what's left has to be the
+		 * floor of a line, h(t) = floor(slope*t + intercept). That holds for some slope as long as every pair of points
+		 * allows it: slope must be above (h(j) - h(i) - 1) / (j - i) and below (h(j) - h(i) + 1) / (j - i) for all i<j.
+		 * Only points on the convex hulls of the points so far can tighten these limits, so only those are checked.
+		 */
+		private int fitLine(int[] values, int sizes, int stride, int v, int start, int linear, int multiplier, int[] fitted) {
+			int first = values[start*stride + v];
+			//Limits on the slope, as fractions. A zero denominator means there's no limit yet.
+			long lowNum = 0;
+			long lowDen = 0;
+			long highNum = 0;
+			long highDen = 0;
+			int lowerCount = 0;
+			int upperCount = 0;
+			
+			int end = start;
+			for(; end<sizes; end++) {
+				int t = end - start;
+				int g = values[end*stride + v] - linear*t - first;
+				if (g % multiplier!=0) break;
+				int h = g / multiplier;
+				
+				long newLowNum = lowNum;
+				long newLowDen = lowDen;
+				for(int i=0; i<lowerCount; i++) {
+					long num = h - lowerY[i] - 1;
+					long den = t - lowerX[i];
+					if (newLowDen==0 || num*newLowDen>newLowNum*den) {
+						newLowNum = num;
+						newLowDen = den;
+					}
+				}
+				long newHighNum = highNum;
+				long newHighDen = highDen;
+				for(int i=0; i<upperCount; i++) {
+					long num = h + 1 - upperY[i];
+					long den = t - upperX[i];
+					if (newHighDen==0 || num*newHighDen<newHighNum*den) {
+						newHighNum = num;
+						newHighDen = den;
+					}
+				}
+				if (newLowDen!=0 && newLowNum*newHighDen>=newHighNum*newLowDen) break;
+				lowNum = newLowNum;
+				lowDen = newLowDen;
+				highNum = newHighNum;
+				highDen = newHighDen;
+				
+				while(lowerCount>=2 && cross(lowerX[lowerCount-2], lowerY[lowerCount-2], lowerX[lowerCount-1], lowerY[lowerCount-1], t, h)<=0) lowerCount--;
+				lowerX[lowerCount] = t;
+				lowerY[lowerCount] = h;
+				lowerCount++;
+				while(upperCount>=2 && cross(upperX[upperCount-2], upperY[upperCount-2], upperX[upperCount-1], upperY[upperCount-1], t, h)>=0) upperCount--;
+				upperX[upperCount] = t;
+				upperY[upperCount] = h;
+				upperCount++;
+			}
+			
+			//Any slope strictly between the limits works; the simplest one keeps the numbers small
+			if (lowDen==0) {
+				slope[0] = 0;
+				slope[1] = 1;
+			} else {
+				simplestBetween(lowNum, lowDen, highNum, highDen, slope);
+			}
+			int numerator = (int) slope[0];
+			int divisor = (int) slope[1];
+			
+			//The lowest phase which doesn't put any point below its floor
+			long phase = Long.MIN_VALUE;
+			for(int row=start; row<end; row++) {
+				int t = row - start;
+				int h = (values[row*stride + v] - linear*t - first) / multiplier;
+				phase = Math.max(phase, (long) divisor*h - (long) numerator*t);
+			}
+			
+			fitted[BASE] = first;
+			fitted[LINEAR] = linear;
+			fitted[MULTIPLIER] = multiplier;
+			fitted[NUMERATOR] = numerator;
+			fitted[DIVISOR] = divisor;
+			fitted[PHASE] = (int) phase;
+			return end;
+		}
+		
+		/** Gets the z component of (b - a) x (c - a), which is positive if a, b, c turn counterclockwise */
+		private static long cross(int ax, int ay, int bx, int by, int cx, int cy) {
+			return (long) (bx-ax) * (cy-ay) - (long) (by-ay) * (cx-ax);
+		}
+		
+		/**
+		 * Finds the fraction with the smallest denominator strictly between lowNum/lowDen and highNum/highDen, and stores
+		 * its numerator and denominator into out. Both denominators must be positive.
+		 */
+		private static void simplestBetween(long lowNum, long lowDen, long highNum, long highDen, long[] out) {
+			long whole = Math.floorDiv(lowNum, lowDen);
+			if ((whole+1)*highDen<highNum) {
+				out[0] = whole+1;
+				out[1] = 1;
+				return;
+			}
+			
+			//Both limits are within (whole, whole+1], so look at the parts after the whole number
+			long lowPart = lowNum - whole*lowDen;
+			long highPart = highNum - whole*highDen;
+			if (lowPart==0) {
+				long den = highDen/highPart + 1;
+				out[0] = whole*den + 1;
+				out[1] = den;
+			} else {
+				//The simplest fraction between two others is the reciprocal of the simplest one between their reciprocals
+				simplestBetween(highDen, highPart, lowDen, lowPart, out);
+				long num = out[0];
+				long den = out[1];
+				out[0] = den + whole*num;
+				out[1] = num;
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.Arrays;
+import java.util.List;
+
+import blue.endless.splinter.metrics.GridMetrics;
+import blue.endless.splinter.metrics.LayoutContainerMetrics;
+
+/**
+ * Stretches rows or columns so that every multi-cell constraint on them is satisfied.
+ * 
+ * <p>Constraints are applied shortest span first (then by leading index), so the result doesn't depend on the order
+ * the constraints were added in, and a wide constraint only claims whatever space the narrower constraints inside it
+ * haven't already provided. Constraints covering exactly the same span are merged, keeping the largest. Growth is
+ * split evenly across a span; any remainder pixels go one each to the leading tracks of the span.
+ * 
+ * <p>Span sizes are read and grown through a Fenwick tree, so C constraints over N tracks cost O(C log C + C log N + N)
+ * rather than the sum of all the span lengths. All working memory is kept between calls.
+ */
+final class SpanSolver {
+	private static final int FIELD_BITS = 21;
+	private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+	
+	/** Sort keys: span, then index, then the constraint's position in its list, packed high bits to low */
+	private long[] keys = new long[16];
+	private int[] resolved = new int[16];
+	/** Prefix sums of the track sizes before any constraint was applied */
+	private long[] base = new long[17];
+	/** Fenwick trees over the growth applied so far, supporting range-add and range-sum */
+	private long[] tree1 = new long[17];
+	private long[] tree2 = new long[17];
+	/** Difference array of the growth applied so far, for writing it back in one pass */
+	private long[] delta = new long[17];
+	private int count = 0;
+	
+	public void solve(GridMetrics.Tracks tracks, int num, List<GridMetrics.Constraint> constraints, int totalSize, LayoutContainerMetrics containerMetrics) {
+		int numConstraints = constraints.size();
+		if (numConstraints==0) return;
+		
+		if (numConstraints>keys.length) {
+			int newSize = Math.max(numConstraints, keys.length*2);
+			keys = new long[newSize];
+			resolved = new int[newSize];
+		}
+		
+		int cellPadding = containerMetrics.getCellPadding();
+		for(int i=0; i<numConstraints; i++) {
+			GridMetrics.Constraint constraint = constraints.get(i);
+			int resolvedFixed = (constraint.fixedSize>0) ? constraint.fixedSize+(cellPadding*2) : 0;
+			int resolvedRelative = (constraint.relativeSize>0) ? (int)((constraint.relativeSize/100.0)*totalSize)+(cellPadding*2) : 0;
+			resolved[i] = Math.max(resolvedFixed, resolvedRelative);
+			keys[i] = (Math.min(constraint.span, FIELD_MASK) << (FIELD_BITS*2))
+					| (Math.min(constraint.index, FIELD_MASK) << FIELD_BITS)
+					| i;
+		}
+		Arrays.sort(keys, 0, numConstraints);
+		
+		reset(tracks.size, num);
+		
+		for(int i=0; i<numConstraints; i++) {
+			long spanAndIndex = keys[i] >>> FIELD_BITS;
+			GridMetrics.Constraint constraint = constraints.get((int) (keys[i] & FIELD_MASK));
+			int target = resolved[(int) (keys[i] & FIELD_MASK)];
+			
+			//Merge in any other constraints over exactly the same tracks
+			while(i+1<numConstraints && (keys[i+1] >>> FIELD_BITS)==spanAndIndex) {
+				i++;
+				target = Math.max(target, resolved[(int) (keys[i] & FIELD_MASK)]);
+			}
+			
+			if (target<=0) continue; //shouldn't happen
+			if (constraint.index<0 || constraint.index+(constraint.span-1)>=num) continue; //This constraint doesn't...fit.
+			
+			int first = constraint.index;
+			int last = constraint.index + constraint.span - 1;
+			long existingSize = (base[last+1] - base[first]) + growthSum(first, last);
+			long leftover = target - existingSize;
+			if (leftover<=0) continue;
+			
+			long leftoverPerElem = leftover / constraint.span;
+			int remainder = (int) (leftover % constraint.span);
+			if (leftoverPerElem>0) grow(first, last, leftoverPerElem);
+			if (remainder>0) grow(first, first+remainder-1, 1);
+		}
+		
+		//Write the growth back into the tracks
+		long running = 0;
+		int[] size = tracks.size;
+		for(int i=0; i<num; i++) {
+			running += delta[i];
+			size[i] += (int) running;
+		}
+	}
+	
+	private void reset(int[] size, int num) {
+		if (num+1>base.length) {
+			int newSize = Math.max(num+1, base.length*2);
+			base = new long[newSize];
+			tree1 = new long[newSize];
+			tree2 = new long[newSize];
+			delta = new long[newSize];
+		}
+		count = num;
+		
+		base[0] = 0;
+		for(int i=0; i<num; i++) {
+			base[i+1] = base[i] + size[i];
+		}
+		Arrays.fill(tree1, 0, num+1, 0L);
+		Arrays.fill(tree2, 0, num+1, 0L);
+		Arrays.fill(delta, 0, num+1, 0L);
+	}
+	
+	/** Adds amount to every track from first to last, inclusive */
+	private void grow(int first, int last, long amount) {
+		delta[first] += amount;
+		delta[last+1] -= amount;
+		
+		//Fenwick trees are 1-indexed
+		add(tree1, first+1, amount);
+		add(tree1, last+2, -amount);
+		add(tree2, first+1, amount*first);
+		add(tree2, last+2, -amount*(last+1));
+	}
+	
+	/** Gets the total growth applied to tracks first through last, inclusive */
+	private long growthSum(int first, int last) {
+		return growthPrefix(last+1) - growthPrefix(first);
+	}
+	
+	/** Gets the total growth applied to the first n tracks */
+	private long growthPrefix(int n) {
+		return sum(tree1, n)*n - sum(tree2, n);
+	}
+	
+	private void add(long[] tree, int index, long amount) {
+		for(int i=index; i<=count; i+=(i & -i)) {
+			tree[i] += amount;
+		}
+	}
+	
+	private long sum(long[] tree, int index) {
+		long result = 0;
+		for(int i=index; i>0; i-=(i & -i)) {
+			result += tree[i];
+		}
+		return result;
+	}
+}
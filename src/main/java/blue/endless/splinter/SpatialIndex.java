@@ -0,0 +1,337 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A static R-tree over rectangles, for finding which of a container's children lie under a point or inside an area.
+ * Items are added, then {@link #build()} packs them using sort-tile-recursive ordering: leaves hold up to
+ * {@link #NODE_SIZE} neighboring items, and each level above groups NODE_SIZE nodes of the level below. Point and
+ * rectangle queries cost O(log n) plus the number of matches.
+ * 
+ * <p>Building costs O(n log n), and the index keeps its arrays between builds. When only some items move, such as the
+ * children which scroll into view, {@link #move(int, int, int, int, int)} updates them in place and refits just the
+ * nodes above each one, in O(log n). Moves don't regroup the tree, so once enough have been made that queries would
+ * start to slow down, move refuses, and the index should be cleared and built again.
+ * 
+ * <p>Items with no area are never found, but are still stored, so that they can be moved later.
+ */
+public class SpatialIndex<T> {
+	public static final int NODE_SIZE = 8;
+	/** How many moves are allowed between builds, as a fraction of the number of items: one in this many */
+	private static final int MOVES_PER_ITEM_DIVISOR = 16;
+	
+	private Object[] items = new Object[16];
+	/** minX, minY, maxX, maxY (exclusive) for each item */
+	private int[] itemBounds = new int[16*4];
+	/** The order each item was added in, used to decide which of several overlapping items is on top */
+	private int[] itemOrder = new int[16];
+	/** The slot each item is stored in, by the order it was added in */
+	private int[] slotByOrder = new int[16];
+	private int count = 0;
+	/** Moves made since the last build */
+	private int moves = 0;
+	
+	/** Bounds of the nodes of each level above the items, bottom level first */
+	private int[][] levels = new int[0][];
+	private int[] levelCounts = new int[0];
+	private int levelCount = 0;
+	private boolean built = true;
+	
+	private Object[] scratchItems = new Object[16];
+	private int[] scratchBounds = new int[16*4];
+	private int[] scratchOrder = new int[16];
+	private long[] keys = new long[16];
+	
+	/** Removes all items */
+	public void clear() {
+		Arrays.fill(items, 0, count, null);
+		count = 0;
+		levelCount = 0;
+		moves = 0;
+		built = true;
+	}
+	
+	/**
+	 * Adds an item. It won't be found by queries until the next {@link #build()}. Items are numbered in the order they're
+	 * added, starting from zero, for {@link #move(int, int, int, int, int)}.
+	 */
+	public void add(T item, int x, int y, int width, int height) {
+		if (count>=items.length) {
+			int newSize = items.length*2;
+			items = Arrays.copyOf(items, newSize);
+			itemBounds = Arrays.copyOf(itemBounds, newSize*4);
+			itemOrder = Arrays.copyOf(itemOrder, newSize);
+			slotByOrder = Arrays.copyOf(slotByOrder, newSize);
+		}
+		items[count] = item;
+		setBounds(count, x, y, width, height);
+		itemOrder[count] = count;
+		slotByOrder[count] = count;
+		count++;
+		built = false;
+	}
+	
+	/** Gets the number of items in this index */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Moves an item which was added before the last build, without rebuilding the tree: its leaf and every node above
+	 * it are refit to cover its new bounds.
+	 * @param order The item's number, counting from zero in the order items were added
+	 * @return true if the item was moved, or false if the index hasn't been built since items were last added, or has
+	 *         had so many moves since it was built that it should be cleared and built again instead. In that case
+	 *         nothing is changed.
+	 */
+	public boolean move(int order, int x, int y, int width, int height) {
+		if (!built || moves>=Math.max(NODE_SIZE, count/MOVES_PER_ITEM_DIVISOR)) return false;
+		moves++;
+		
+		int slot = slotByOrder[order];
+		setBounds(slot, x, y, width, height);
+		
+		//Refit each node above the item, stopping early if one is already the right size
+		int child = slot;
+		int[] below = itemBounds;
+		int belowCount = count;
+		for(int level=0; level<levelCount; level++) {
+			int node = child / NODE_SIZE;
+			if (!fitNode(levels[level], node, below, belowCount)) break;
+			child = node;
+			below = levels[level];
+			belowCount = levelCounts[level];
+		}
+		return true;
+	}
+	
+	/** Stores an item's bounds. Items with no area get bounds which no point or rectangle can intersect. */
+	private void setBounds(int slot, int x, int y, int width, int height) {
+		int base = slot*4;
+		if (width<=0 || height<=0) {
+			itemBounds[base  ] = Integer.MAX_VALUE;
+			itemBounds[base+1] = Integer.MAX_VALUE;
+			itemBounds[base+2] = Integer.MIN_VALUE;
+			itemBounds[base+3] = Integer.MIN_VALUE;
+		} else {
+			itemBounds[base  ] = x;
+			itemBounds[base+1] = y;
+			itemBounds[base+2] = x+width;
+			itemBounds[base+3] = y+height;
+		}
+	}
+	
+	/** Packs all the items added so far into the tree */
+	public void build() {
+		if (built) return;
+		
+		sortTileRecursive();
+		for(int i=0; i<count; i++) {
+			slotByOrder[itemOrder[i]] = i;
+		}
+		moves = 0;
+		
+		//Each level above the items groups consecutive runs of the level below, which STR order keeps close together
+		levelCount = 0;
+		int[] below = itemBounds;
+		int belowCount = count;
+		while(belowCount>1) {
+			int nodes = (belowCount + NODE_SIZE - 1) / NODE_SIZE;
+			if (levelCount>=levels.length) {
+				levels = Arrays.copyOf(levels, levelCount+1);
+				levelCounts = Arrays.copyOf(levelCounts, levelCount+1);
+			}
+			int[] level = levels[levelCount];
+			if (level==null || level.length<nodes*4) {
+				level = new int[nodes*4];
+				levels[levelCount] = level;
+			}
+			
+			for(int node=0; node<nodes; node++) {
+				fitNode(level, node, below, belowCount);
+			}
+			
+			levelCounts[levelCount] = nodes;
+			levelCount++;
+			below = level;
+			belowCount = nodes;
+		}
+		
+		built = true;
+	}
+	
+	/**
+	 * Sets a node's bounds to cover its children in the level below.
+	 * @return true if the node's bounds changed
+	 */
+	private static boolean fitNode(int[] level, int node, int[] below, int belowCount) {
+		int first = node*NODE_SIZE;
+		int last = Math.min(first+NODE_SIZE, belowCount);
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for(int i=first; i<last; i++) {
+			minX = Math.min(minX, below[i*4  ]);
+			minY = Math.min(minY, below[i*4+1]);
+			maxX = Math.max(maxX, below[i*4+2]);
+			maxY = Math.max(maxY, below[i*4+3]);
+		}
+		int base = node*4;
+		if (level[base]==minX && level[base+1]==minY && level[base+2]==maxX && level[base+3]==maxY) return false;
+		level[base  ] = minX;
+		level[base+1] = minY;
+		level[base+2] = maxX;
+		level[base+3] = maxY;
+		return true;
+	}
+	
+	/**
+	 * Finds the item under the given point. If several items overlap there, the one added last is returned, since it
+	 * would have been painted last.
+	 * @return the topmost item containing the point, or null if there isn't one.
+	 */
+	@SuppressWarnings("unchecked")
+	public T findAt(int x, int y) {
+		build();
+		if (count==0) return null;
+		int found = findAt(levelCount-1, 0, x, y, -1);
+		return (found<0) ? null : (T) items[found];
+	}
+	
+	/**
+	 * Adds every item which shares any area with the given rectangle to results.
+	 */
+	@SuppressWarnings("unchecked")
+	public void findIntersecting(int x, int y, int width, int height, List<? super T> results) {
+		build();
+		if (count==0 || width<=0 || height<=0) return;
+		findIntersecting(levelCount-1, 0, x, y, x+width, y+height, (List<Object>) results);
+	}
+	
+	/** Level -1 is the items themselves. Returns the slot of the topmost item found so far. */
+	private int findAt(int level, int node, int x, int y, int best) {
+		if (level<0) {
+			int base = node*4;
+			if (x>=itemBounds[base] && y>=itemBounds[base+1] && x<itemBounds[base+2] && y<itemBounds[base+3]) {
+				if (best<0 || itemOrder[node]>itemOrder[best]) return node;
+			}
+			return best;
+		}
+		
+		int[] bounds = levels[level];
+		int base = node*4;
+		if (x<bounds[base] || y<bounds[base+1] || x>=bounds[base+2] || y>=bounds[base+3]) return best;
+		
+		int first = node*NODE_SIZE;
+		int last = Math.min(first+NODE_SIZE, (level==0) ? count : levelCounts[level-1]);
+		for(int i=first; i<last; i++) {
+			best = findAt(level-1, i, x, y, best);
+		}
+		return best;
+	}
+	
+	private void findIntersecting(int level, int node, int minX, int minY, int maxX, int maxY, List<Object> results) {
+		int[] bounds = (level<0) ? itemBounds : levels[level];
+		int base = node*4;
+		if (maxX<=bounds[base] || maxY<=bounds[base+1] || minX>=bounds[base+2] || minY>=bounds[base+3]) return;
+		
+		if (level<0) {
+			results.add(items[node]);
+			return;
+		}
+		
+		int first = node*NODE_SIZE;
+		int last = Math.min(first+NODE_SIZE, (level==0) ? count : levelCounts[level-1]);
+		for(int i=first; i<last; i++) {
+			findIntersecting(level-1, i, minX, minY, maxX, maxY, results);
+		}
+	}
+	
+	/**
+	 * Reorders the items so that each run of NODE_SIZE items is a compact tile: sorts them into vertical slices by their
+	 * center x, then sorts each slice by center y. Items with no area aren't sorted; they go after the rest in the order
+	 * they were added, so that if neighboring ones are later moved into view together, such as rows scrolling into a
+	 * viewport, they share leaves.
+	 */
+	private void sortTileRecursive() {
+		if (keys.length<count || scratchItems.length<count) {
+			int newSize = Math.max(count, items.length);
+			keys = new long[newSize];
+			scratchItems = new Object[newSize];
+			scratchBounds = new int[newSize*4];
+			scratchOrder = new int[newSize];
+		}
+		
+		int filled = 0;
+		for(int i=0; i<count; i++) {
+			if (isEmpty(i)) continue;
+			long centerX = ((long) itemBounds[i*4] + itemBounds[i*4+2]) / 2;
+			keys[filled] = (centerX << 32) | i;
+			filled++;
+		}
+		int empty = filled;
+		for(int order=0; order<count; order++) {
+			int item = slotByOrder[order];
+			if (isEmpty(item)) {
+				keys[empty] = item;
+				empty++;
+			}
+		}
+		Arrays.sort(keys, 0, filled);
+		
+		int leaves = (filled + NODE_SIZE - 1) / NODE_SIZE;
+		int slices = (int) Math.ceil(Math.sqrt(leaves));
+		int sliceSize = slices*NODE_SIZE;
+		for(int start=0; start<filled; start+=sliceSize) {
+			int end = Math.min(start+sliceSize, filled);
+			for(int i=start; i<end; i++) {
+				int item = (int) keys[i];
+				long centerY = ((long) itemBounds[item*4+1] + itemBounds[item*4+3]) / 2;
+				keys[i] = (centerY << 32) | item;
+			}
+			Arrays.sort(keys, start, end);
+		}
+		
+		for(int i=0; i<count; i++) {
+			int item = (int) keys[i];
+			scratchItems[i] = items[item];
+			System.arraycopy(itemBounds, item*4, scratchBounds, i*4, 4);
+			scratchOrder[i] = itemOrder[item];
+		}
+		
+		Object[] swapItems = items; items = scratchItems; scratchItems = swapItems;
+		int[] swapBounds = itemBounds; itemBounds = scratchBounds; scratchBounds = swapBounds;
+		int[] swapOrder = itemOrder; itemOrder = scratchOrder; scratchOrder = swapOrder;
+		Arrays.fill(scratchItems, 0, count, null);
+	}
+	
+	private boolean isEmpty(int slot) {
+		return itemBounds[slot*4]==Integer.MAX_VALUE && itemBounds[slot*4+2]==Integer.MIN_VALUE;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.constraint;
+
+/**
+ * A linear relation between two expressions, with a strength deciding how it's traded off against other constraints
+ * when they can't all be satisfied. Constraints are compared by identity, so the same one can be removed from a
+ * {@link Solver} later.
+ */
+public final class Constraint {
+	private final Expression expression;
+	private final Relation relation;
+	private final double strength;
+	
+	/**
+	 * Creates a constraint that lhs relates to rhs according to relation
+	 * @param strength how strongly to enforce this constraint. See {@link Strength}.
+	 */
+	public Constraint(Expression lhs, Relation relation, Expression rhs, double strength) {
+		this(lhs.minus(rhs), relation, strength);
+	}
+	
+	private Constraint(Expression expression, Relation relation, double strength) {
+		this.expression = expression;
+		this.relation = relation;
+		this.strength = Strength.clip(strength);
+	}
+	
+	public static Constraint equal(Expression lhs, Expression rhs) {
+		return new Constraint(lhs, Relation.EQUAL, rhs, Strength.REQUIRED);
+	}
+	
+	public static Constraint lessOrEqual(Expression lhs, Expression rhs) {
+		return new Constraint(lhs, Relation.LESS_OR_EQUAL, rhs, Strength.REQUIRED);
+	}
+	
+	public static Constraint greaterOrEqual(Expression lhs, Expression rhs) {
+		return new Constraint(lhs, Relation.GREATER_OR_EQUAL, rhs, Strength.REQUIRED);
+	}
+	
+	/** Creates a new constraint with the same relation as this one, but a different strength */
+	public Constraint withStrength(double strength) {
+		return new Constraint(expression, relation, strength);
+	}
+	
+	/** Gets the expression which this constraint relates to zero; that is, its left-hand side minus its right. */
+	public Expression getExpression() { return expression; }
+	public Relation getRelation() { return relation; }
+	public double getStrength() { return strength; }
+	
+	@Override
+	public String toString() {
+		String op = switch(relation) {
+			case LESS_OR_EQUAL -> " <= 0";
+			case EQUAL -> " == 0";
+			case GREATER_OR_EQUAL -> " >= 0";
+		};
+		return expression+op+" | "+strength;
+	}
+}
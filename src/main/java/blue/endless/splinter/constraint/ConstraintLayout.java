@@ -0,0 +1,249 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.constraint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import blue.endless.splinter.LayoutCache;
+import blue.endless.splinter.LayoutContainer;
+import blue.endless.splinter.LayoutElement;
+import blue.endless.splinter.LayoutStrategy;
+
+/**
+ * A LayoutStrategy which positions children according to linear constraints between their edges and sizes and the
+ * container's, solved by an incremental {@link Solver}.
+ * 
+ * <p>Each child that takes part has a left, top, width, and height variable, obtained through
+ * {@link #getBounds(LayoutElement)}. Children which never had bounds obtained for them are removed from the layout.
+ * The container's own size is available as {@link #getWidth()} and {@link #getHeight()}; each solve suggests the size
+ * being laid out to the solver, with a strength greater than any non-required constraint. Because the solver keeps its
+ * tableau, resizing the container, suggesting a new value for an edit variable, or adding or removing a single
+ * constraint re-optimizes from the previous solution instead of solving the whole system again.
+ * 
+ * <p>The natural size is read from a second solver, which holds the same constraints and edits but always has the
+ * container's size suggested as zero. Every change is made to both, incrementally, so measuring never pulls the live
+ * solution away from the size being laid out. This doubles the memory and the work per change, which is still a
+ * handful of pivots; measuring on the live solver would instead cost two re-optimizations of the whole layout, one to
+ * zero and one back.
+ * 
+ * <p>A container using this strategy must change its layout version whenever constraints or edit values change, since
+ * layout results are cached by version.
+ */
+public class ConstraintLayout implements LayoutStrategy {
+	/** Stronger than every non-required constraint, so the container's size only gives way to required ones */
+	private static final double CONTAINER_STRENGTH = Strength.create(1000.0, 0.0, 0.0);
+	
+	private final Solver solver = new Solver();
+	/** Holds everything solver does, with the container's size left at zero, to find the natural size */
+	private final Solver probe = new Solver();
+	private final Variable width = new Variable("width");
+	private final Variable height = new Variable("height");
+	private final Map<LayoutElement, Bounds> bounds = new HashMap<>();
+	/** Every constraint in the solver other than edits, so that the ones touching an element can be found when it goes away */
+	private final LinkedHashSet<Constraint> constraints = new LinkedHashSet<>();
+	
+	public ConstraintLayout() {
+		solver.addEditVariable(width, CONTAINER_STRENGTH);
+		solver.addEditVariable(height, CONTAINER_STRENGTH);
+		probe.addEditVariable(width, CONTAINER_STRENGTH);
+		probe.addEditVariable(height, CONTAINER_STRENGTH);
+	}
+	
+	/** Gets the variable holding the width of the container being laid out */
+	public Variable getWidth() { return width; }
+	/** Gets the variable holding the height of the container being laid out */
+	public Variable getHeight() { return height; }
+	
+	/**
+	 * Gets the variables for an element's position and size, relative to the container's origin, creating them if this
+	 * is the first time they've been asked for. New bounds are constrained to a width and height of at least zero.
+	 */
+	public Bounds getBounds(LayoutElement elem) {
+		Bounds result = bounds.get(elem);
+		if (result==null) {
+			result = new Bounds(new Variable("left"), new Variable("top"), new Variable("width"), new Variable("height"));
+			bounds.put(elem, result);
+			addConstraint(Constraint.greaterOrEqual(Expression.of(result.width()), Expression.of(0)));
+			addConstraint(Constraint.greaterOrEqual(Expression.of(result.height()), Expression.of(0)));
+		}
+		return result;
+	}
+	
+	public boolean hasBounds(LayoutElement elem) {
+		return bounds.containsKey(elem);
+	}
+	
+	/**
+	 * Forgets an element's bounds, removing every constraint and edit variable that refers to them.
+	 */
+	public void removeElement(LayoutElement elem) {
+		Bounds removed = bounds.remove(elem);
+		if (removed==null) return;
+		
+		ArrayList<Constraint> toRemove = new ArrayList<>();
+		for(Constraint constraint : constraints) {
+			if (removed.isReferencedBy(constraint.getExpression())) toRemove.add(constraint);
+		}
+		for(Constraint constraint : toRemove) removeConstraint(constraint);
+		
+		for(Variable variable : removed.variables()) {
+			if (solver.hasEditVariable(variable)) removeEditVariable(variable);
+		}
+	}
+	
+	/**
+	 * Adds a constraint to the layout.
+	 * @throws IllegalArgumentException if the constraint has already been added
+	 * @throws IllegalStateException if the constraint is required and conflicts with other required constraints
+	 */
+	public void addConstraint(Constraint constraint) {
+		solver.addConstraint(constraint);
+		probe.addConstraint(constraint);
+		constraints.add(constraint);
+	}
+	
+	/**
+	 * Removes a constraint from the layout.
+	 * @throws IllegalArgumentException if the constraint isn't part of this layout
+	 */
+	public void removeConstraint(Constraint constraint) {
+		solver.removeConstraint(constraint);
+		probe.removeConstraint(constraint);
+		constraints.remove(constraint);
+	}
+	
+	/**
+	 * Makes a variable into one whose value can be suggested from outside, such as the position of a divider being
+	 * dragged. See {@link Solver#addEditVariable(Variable, double)}.
+	 */
+	public void addEditVariable(Variable variable, double strength) {
+		solver.addEditVariable(variable, strength);
+		probe.addEditVariable(variable, strength);
+	}
+	
+	public void removeEditVariable(Variable variable) {
+		solver.removeEditVariable(variable);
+		probe.removeEditVariable(variable);
+	}
+	
+	/** Suggests a new value for an edit variable. The solver re-optimizes from its previous solution. */
+	public void suggestValue(Variable variable, double value) {
+		solver.suggestValue(variable, value);
+		probe.suggestValue(variable, value);
+	}
+	
+	/**
+	 * Gets the number of simplex pivots made so far by this layout's solvers, including the one which finds the natural
+	 * size, for measuring how much work a change costs.
+	 */
+	public long getPivotCount() {
+		return solver.getPivotCount() + probe.getPivotCount();
+	}
+	
+	@Override
+	public void solve(LayoutContainer container, int width, int height, LayoutCache.Entry result) {
+		solver.suggestValue(this.width, width);
+		solver.suggestValue(this.height, height);
+		solver.updateVariables();
+		
+		Iterable<? extends LayoutElement> children = container.getLayoutChildren();
+		if (children instanceof List<? extends LayoutElement> list && children instanceof RandomAccess) {
+			for(int i=0; i<list.size(); i++) addPlaced(list.get(i), result);
+			for(int i=0; i<list.size(); i++) {
+				if (!bounds.containsKey(list.get(i))) result.addRemoved(list.get(i));
+			}
+		} else {
+			for(LayoutElement elem : children) addPlaced(elem, result);
+			for(LayoutElement elem : children) {
+				if (!bounds.containsKey(elem)) result.addRemoved(elem);
+			}
+		}
+	}
+	
+	private void addPlaced(LayoutElement elem, LayoutCache.Entry result) {
+		Bounds elemBounds = bounds.get(elem);
+		if (elemBounds==null) return;
+		
+		//Round edges rather than sizes, so that elements which share an edge don't leave a gap or overlap
+		double left = elemBounds.left().getValue();
+		double top = elemBounds.top().getValue();
+		int x = (int) Math.round(left);
+		int y = (int) Math.round(top);
+		int right = (int) Math.round(left + elemBounds.width().getValue());
+		int bottom = (int) Math.round(top + elemBounds.height().getValue());
+		result.addPlaced(elem, x, y, Math.max(0, right-x), Math.max(0, bottom-y));
+	}
+	
+	/**
+	 * Finds the smallest size the constraints allow, by measuring how far the container and its children are pushed out
+	 * in the probe solver, where the container's size is suggested as zero. The live solution isn't touched.
+	 */
+	@Override
+	public void measure(LayoutContainer container, int[] size) {
+		double naturalWidth = probe.getValue(width);
+		double naturalHeight = probe.getValue(height);
+		for(Bounds elemBounds : bounds.values()) {
+			naturalWidth = Math.max(naturalWidth, probe.getValue(elemBounds.left()) + probe.getValue(elemBounds.width()));
+			naturalHeight = Math.max(naturalHeight, probe.getValue(elemBounds.top()) + probe.getValue(elemBounds.height()));
+		}
+		size[0] = (int) Math.ceil(naturalWidth - 1.0e-6);
+		size[1] = (int) Math.ceil(naturalHeight - 1.0e-6);
+	}
+	
+	/**
+	 * The variables for one element's position and size, relative to its container's origin
+	 */
+	public record Bounds(Variable left, Variable top, Variable width, Variable height) {
+		public Expression right() {
+			return Expression.of(left).plus(width);
+		}
+		
+		public Expression bottom() {
+			return Expression.of(top).plus(height);
+		}
+		
+		public Expression centerX() {
+			return Expression.of(left).plus(Expression.of(width).times(0.5));
+		}
+		
+		public Expression centerY() {
+			return Expression.of(top).plus(Expression.of(height).times(0.5));
+		}
+		
+		Variable[] variables() {
+			return new Variable[] { left, top, width, height };
+		}
+		
+		boolean isReferencedBy(Expression expression) {
+			return expression.contains(left) || expression.contains(top) || expression.contains(width) || expression.contains(height);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.constraint;
+
+import java.util.Arrays;
+
+/**
+ * An immutable linear expression: a sum of variables, each multiplied by a coefficient, plus a constant.
+ */
+public final class Expression {
+	private static final Variable[] NO_VARIABLES = new Variable[0];
+	private static final double[] NO_COEFFICIENTS = new double[0];
+	
+	final Variable[] variables;
+	final double[] coefficients;
+	final double constant;
+	
+	private Expression(Variable[] variables, double[] coefficients, double constant) {
+		this.variables = variables;
+		this.coefficients = coefficients;
+		this.constant = constant;
+	}
+	
+	public static Expression of(Variable variable) {
+		return new Expression(new Variable[] { variable }, new double[] { 1.0 }, 0.0);
+	}
+	
+	public static Expression of(double constant) {
+		return new Expression(NO_VARIABLES, NO_COEFFICIENTS, constant);
+	}
+	
+	public Expression plus(Expression other) {
+		return combine(other, 1.0);
+	}
+	
+	public Expression plus(Variable variable) {
+		return combine(of(variable), 1.0);
+	}
+	
+	public Expression plus(double value) {
+		return new Expression(variables, coefficients, constant + value);
+	}
+	
+	public Expression minus(Expression other) {
+		return combine(other, -1.0);
+	}
+	
+	public Expression minus(Variable variable) {
+		return combine(of(variable), -1.0);
+	}
+	
+	public Expression minus(double value) {
+		return new Expression(variables, coefficients, constant - value);
+	}
+	
+	public Expression times(double value) {
+		double[] scaled = new double[coefficients.length];
+		for(int i=0; i<scaled.length; i++) scaled[i] = coefficients[i] * value;
+		return new Expression(variables, scaled, constant * value);
+	}
+	
+	/** Returns true if variable appears anywhere in this expression */
+	public boolean contains(Variable variable) {
+		for(Variable v : variables) if (v==variable) return true;
+		return false;
+	}
+	
+	/** Evaluates this expression using the current values of its variables */
+	public double getValue() {
+		double result = constant;
+		for(int i=0; i<variables.length; i++) result += variables[i].value * coefficients[i];
+		return result;
+	}
+	
+	private Expression combine(Expression other, double multiplier) {
+		Variable[] newVariables = Arrays.copyOf(variables, variables.length + other.variables.length);
+		double[] newCoefficients = Arrays.copyOf(coefficients, coefficients.length + other.coefficients.length);
+		for(int i=0; i<other.variables.length; i++) {
+			newVariables[variables.length+i] = other.variables[i];
+			newCoefficients[coefficients.length+i] = other.coefficients[i] * multiplier;
+		}
+		return new Expression(newVariables, newCoefficients, constant + other.constant * multiplier);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for(int i=0; i<variables.length; i++) {
+			if (i>0) result.append(" + ");
+			result.append(coefficients[i]);
+			result.append('*');
+			result.append(variables[i].getName());
+		}
+		if (variables.length>0) result.append(" + ");
+		result.append(constant);
+		return result.toString();
+	}
+}
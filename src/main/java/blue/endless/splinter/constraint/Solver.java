@@ -0,0 +1,732 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.constraint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An incremental simplex solver for linear equality and inequality constraints of varying strengths, following the
+ * Cassowary algorithm.
+ * 
+ * <p>The solver keeps its tableau between calls. Adding or removing a constraint only pivots as far as needed to make
+ * the previous solution optimal again, and {@link #suggestValue(Variable, double)} re-optimizes from the last solution
+ * using the dual simplex method, which for a typical layout change is a handful of pivots. Variables only receive
+ * their values when {@link #updateVariables()} is called.
+ * 
+ * <p>Required constraints which conflict with each other are rejected with an IllegalStateException, leaving the
+ * system of constraints and its last solution as they were. Non-required constraints can always be added; the solver
+ * minimizes the weighted error of the ones it can't satisfy.
+ */
+public class Solver {
+	private static final double EPSILON = 1.0e-8;
+	
+	private final Map<Constraint, Tag> constraints = new LinkedHashMap<>();
+	private final Map<Symbol, Row> rows = new LinkedHashMap<>();
+	private final Map<Variable, Symbol> variables = new LinkedHashMap<>();
+	private final Map<Variable, EditInfo> edits = new LinkedHashMap<>();
+	private final ArrayList<Symbol> infeasible = new ArrayList<>();
+	private final Row objective = new Row(0.0);
+	/** Only non-null while a row is being added through an artificial variable */
+	private Row artificial = null;
+	private int nextId = 0;
+	private long pivotCount = 0;
+	
+	/**
+	 * Adds a constraint to the system and re-optimizes.
+	 * @throws IllegalArgumentException if the constraint has already been added
+	 * @throws IllegalStateException if the constraint is required and conflicts with the required constraints already
+	 *         in the system
+	 */
+	public void addConstraint(Constraint constraint) {
+		if (constraints.containsKey(constraint)) throw new IllegalArgumentException("Constraint has already been added: "+constraint);
+		
+		int knownVariables = variables.size();
+		Tag tag = new Tag();
+		Row row = createRow(constraint, tag);
+		Symbol subject = chooseSubject(row, tag);
+		
+		//A row made up entirely of dummies is either redundant or impossible, depending on its constant
+		if (subject==null && allDummies(row)) {
+			if (!nearZero(row.constant)) {
+				forgetVariablesAfter(knownVariables);
+				throw new IllegalStateException("Constraint can't be satisfied: "+constraint);
+			}
+			subject = tag.marker;
+		}
+		
+		if (subject==null) {
+			//Minimizing the artificial variable pivots the whole tableau, so a failed attempt can leave it at a different
+			//solution even once the artificial row is gone. Keep a copy to put back if the constraint is rejected.
+			Map<Symbol, Row> savedRows = new LinkedHashMap<>();
+			for(Map.Entry<Symbol, Row> entry : rows.entrySet()) savedRows.put(entry.getKey(), new Row(entry.getValue()));
+			Row savedObjective = new Row(objective);
+			int savedInfeasible = infeasible.size();
+			
+			if (!addWithArtificialVariable(row)) {
+				rows.clear();
+				rows.putAll(savedRows);
+				objective.copyFrom(savedObjective);
+				infeasible.subList(savedInfeasible, infeasible.size()).clear();
+				forgetVariablesAfter(knownVariables);
+				throw new IllegalStateException("Constraint can't be satisfied: "+constraint);
+			}
+		} else {
+			row.solveFor(subject);
+			substitute(subject, row);
+			rows.put(subject, row);
+		}
+		
+		constraints.put(constraint, tag);
+		optimize(objective);
+	}
+	
+	/**
+	 * Removes a constraint from the system and re-optimizes.
+	 * @throws IllegalArgumentException if the constraint isn't in the system
+	 */
+	public void removeConstraint(Constraint constraint) {
+		Tag tag = constraints.remove(constraint);
+		if (tag==null) throw new IllegalArgumentException("Constraint was never added: "+constraint);
+		
+		//Remove the error weights from the objective before the marker rows go away
+		if (tag.marker.type==SymbolType.ERROR) removeMarkerEffects(tag.marker, constraint.getStrength());
+		if (tag.other!=null && tag.other.type==SymbolType.ERROR) removeMarkerEffects(tag.other, constraint.getStrength());
+		
+		//If the marker is basic, dropping its row removes the constraint. Otherwise pivot it into the basis first.
+		Row row = rows.remove(tag.marker);
+		if (row==null) {
+			Symbol leaving = getMarkerLeavingSymbol(tag.marker);
+			if (leaving==null) throw new IllegalStateException("Failed to find a leaving row for "+constraint);
+			row = rows.remove(leaving);
+			row.solveFor(leaving, tag.marker);
+			substitute(tag.marker, row);
+		}
+		
+		optimize(objective);
+	}
+	
+	public boolean hasConstraint(Constraint constraint) {
+		return constraints.containsKey(constraint);
+	}
+	
+	/**
+	 * Marks a variable as one whose value will be set from outside the system through
+	 * {@link #suggestValue(Variable, double)}, with the given strength. Its suggested value starts out as zero.
+	 * @throws IllegalArgumentException if the variable is already an edit variable, or the strength is required
+	 */
+	public void addEditVariable(Variable variable, double strength) {
+		if (edits.containsKey(variable)) throw new IllegalArgumentException("Variable is already being edited: "+variable.getName());
+		strength = Strength.clip(strength);
+		if (strength>=Strength.REQUIRED) throw new IllegalArgumentException("Edit variables can't be required.");
+		
+		Constraint constraint = new Constraint(Expression.of(variable), Relation.EQUAL, Expression.of(0.0), strength);
+		addConstraint(constraint);
+		edits.put(variable, new EditInfo(constraint, constraints.get(constraint)));
+	}
+	
+	/**
+	 * Stops editing a variable, removing its suggested value from the system.
+	 * @throws IllegalArgumentException if the variable isn't an edit variable
+	 */
+	public void removeEditVariable(Variable variable) {
+		EditInfo info = edits.remove(variable);
+		if (info==null) throw new IllegalArgumentException("Variable isn't being edited: "+variable.getName());
+		removeConstraint(info.constraint);
+	}
+	
+	public boolean hasEditVariable(Variable variable) {
+		return edits.containsKey(variable);
+	}
+	
+	/**
+	 * Suggests a new value for an edit variable, and re-optimizes from the current solution.
+	 * @throws IllegalArgumentException if the variable isn't an edit variable
+	 */
+	public void suggestValue(Variable variable, double value) {
+		EditInfo info = edits.get(variable);
+		if (info==null) throw new IllegalArgumentException("Variable isn't being edited: "+variable.getName());
+		
+		double delta = value - info.constant;
+		if (delta==0.0) return;
+		info.constant = value;
+		
+		//Only the constants of the rows the edit's error markers appear in change, which may leave some of them infeasible
+		Symbol marker = info.tag.marker;
+		Symbol other = info.tag.other;
+		Row row = rows.get(marker);
+		if (row!=null) {
+			if (row.add(-delta)<0.0) infeasible.add(marker);
+		} else {
+			row = rows.get(other);
+			if (row!=null) {
+				if (row.add(delta)<0.0) infeasible.add(other);
+			} else {
+				for(Map.Entry<Symbol, Row> entry : rows.entrySet()) {
+					Row cur = entry.getValue();
+					double coefficient = cur.coefficientFor(marker);
+					if (coefficient!=0.0 && cur.add(delta * coefficient)<0.0 && entry.getKey().type!=SymbolType.EXTERNAL) {
+						infeasible.add(entry.getKey());
+					}
+				}
+			}
+		}
+		
+		dualOptimize();
+	}
+	
+	/**
+	 * Gets a variable's value in the current solution, without copying it into the variable. Variables the solver has
+	 * never seen are zero.
+	 */
+	public double getValue(Variable variable) {
+		Symbol symbol = variables.get(variable);
+		if (symbol==null) return 0.0;
+		Row row = rows.get(symbol);
+		return (row==null) ? 0.0 : row.constant;
+	}
+	
+	/**
+	 * Gets the number of simplex pivots made so far while re-optimizing, for measuring how much work a change costs.
+	 */
+	public long getPivotCount() {
+		return pivotCount;
+	}
+	
+	/** Copies the current solution into the value of every variable the solver knows about */
+	public void updateVariables() {
+		for(Map.Entry<Variable, Symbol> entry : variables.entrySet()) {
+			Row row = rows.get(entry.getValue());
+			entry.getKey().value = (row==null) ? 0.0 : row.constant;
+		}
+	}
+	
+	/** Removes every constraint and edit variable */
+	public void reset() {
+		constraints.clear();
+		rows.clear();
+		variables.clear();
+		edits.clear();
+		infeasible.clear();
+		objective.clear();
+		artificial = null;
+	}
+	
+	/**
+	 * Builds a tableau row out of a constraint, with its expression rewritten in terms of the current non-basic
+	 * symbols, plus the slack, error, or dummy symbols that stand for its relation and strength.
+	 */
+	private Row createRow(Constraint constraint, Tag tag) {
+		Expression expression = constraint.getExpression();
+		Row row = new Row(expression.constant);
+		for(int i=0; i<expression.variables.length; i++) {
+			double coefficient = expression.coefficients[i];
+			if (nearZero(coefficient)) continue;
+			
+			Symbol symbol = getVariableSymbol(expression.variables[i]);
+			Row basic = rows.get(symbol);
+			if (basic!=null) {
+				row.insert(basic, coefficient);
+			} else {
+				row.insert(symbol, coefficient);
+			}
+		}
+		
+		double strength = constraint.getStrength();
+		switch(constraint.getRelation()) {
+			case LESS_OR_EQUAL, GREATER_OR_EQUAL -> {
+				double coefficient = (constraint.getRelation()==Relation.LESS_OR_EQUAL) ? 1.0 : -1.0;
+				Symbol slack = new Symbol(SymbolType.SLACK, nextId++);
+				tag.marker = slack;
+				row.insert(slack, coefficient);
+				if (strength<Strength.REQUIRED) {
+					Symbol error = new Symbol(SymbolType.ERROR, nextId++);
+					tag.other = error;
+					row.insert(error, -coefficient);
+					objective.insert(error, strength);
+				}
+			}
+			case EQUAL -> {
+				if (strength<Strength.REQUIRED) {
+					Symbol errorPlus = new Symbol(SymbolType.ERROR, nextId++);
+					Symbol errorMinus = new Symbol(SymbolType.ERROR, nextId++);
+					tag.marker = errorPlus;
+					tag.other = errorMinus;
+					row.insert(errorPlus, -1.0);
+					row.insert(errorMinus, 1.0);
+					objective.insert(errorPlus, strength);
+					objective.insert(errorMinus, strength);
+				} else {
+					Symbol dummy = new Symbol(SymbolType.DUMMY, nextId++);
+					tag.marker = dummy;
+					row.insert(dummy, 1.0);
+				}
+			}
+		}
+		
+		if (row.constant<0.0) row.reverseSign();
+		return row;
+	}
+	
+	/**
+	 * Picks the symbol a new row should be solved for: any external variable, or failing that, a slack or error marker
+	 * with a negative coefficient. Returns null if there's no such symbol.
+	 */
+	private static Symbol chooseSubject(Row row, Tag tag) {
+		for(int i=0; i<row.size; i++) {
+			if (row.symbols[i].type==SymbolType.EXTERNAL) return row.symbols[i];
+		}
+		if (isPivotable(tag.marker) && row.coefficientFor(tag.marker)<0.0) return tag.marker;
+		if (tag.other!=null && isPivotable(tag.other) && row.coefficientFor(tag.other)<0.0) return tag.other;
+		return null;
+	}
+	
+	/**
+	 * Adds a row which has no obvious subject by temporarily making an artificial variable basic for it, and minimizing
+	 * that variable. Returns false if it can't be driven to zero, meaning the row can't be satisfied.
+	 */
+	private boolean addWithArtificialVariable(Row row) {
+		Symbol art = new Symbol(SymbolType.SLACK, nextId++);
+		rows.put(art, new Row(row));
+		artificial = new Row(row);
+		
+		optimize(artificial);
+		boolean success = nearZero(artificial.constant);
+		artificial = null;
+		
+		//If the artificial variable is still basic, pivot it out, or drop its row if it's empty
+		Row basic = rows.remove(art);
+		if (basic!=null) {
+			if (basic.size==0) return success;
+			Symbol entering = null;
+			for(int i=0; i<basic.size; i++) {
+				if (isPivotable(basic.symbols[i])) {
+					entering = basic.symbols[i];
+					break;
+				}
+			}
+			if (entering==null) return false;
+			basic.solveFor(art, entering);
+			substitute(entering, basic);
+			rows.put(entering, basic);
+		}
+		
+		for(Row cur : rows.values()) cur.remove(art);
+		objective.remove(art);
+		return success;
+	}
+	
+	/** Replaces symbol with row everywhere in the tableau and the objective */
+	private void substitute(Symbol symbol, Row row) {
+		for(Map.Entry<Symbol, Row> entry : rows.entrySet()) {
+			Row cur = entry.getValue();
+			cur.substitute(symbol, row);
+			if (entry.getKey().type!=SymbolType.EXTERNAL && cur.constant<0.0) infeasible.add(entry.getKey());
+		}
+		objective.substitute(symbol, row);
+		if (artificial!=null) artificial.substitute(symbol, row);
+	}
+	
+	/** Minimizes the given objective using the primal simplex method */
+	private void optimize(Row objective) {
+		while(true) {
+			Symbol entering = null;
+			for(int i=0; i<objective.size; i++) {
+				if (objective.symbols[i].type!=SymbolType.DUMMY && objective.coefficients[i]<0.0) {
+					entering = objective.symbols[i];
+					break;
+				}
+			}
+			if (entering==null) return;
+			
+			//Pick the row that limits how far the entering symbol can increase
+			Symbol leaving = null;
+			double ratio = Double.MAX_VALUE;
+			for(Map.Entry<Symbol, Row> entry : rows.entrySet()) {
+				if (entry.getKey().type==SymbolType.EXTERNAL) continue;
+				Row cur = entry.getValue();
+				double coefficient = cur.coefficientFor(entering);
+				if (coefficient<0.0) {
+					double curRatio = -cur.constant / coefficient;
+					if (curRatio<ratio) {
+						ratio = curRatio;
+						leaving = entry.getKey();
+					}
+				}
+			}
+			if (leaving==null) throw new IllegalStateException("The objective is unbounded.");
+			
+			Row row = rows.remove(leaving);
+			row.solveFor(leaving, entering);
+			substitute(entering, row);
+			rows.put(entering, row);
+			pivotCount++;
+		}
+	}
+	
+	/** Restores feasibility to rows whose constants have gone negative, while keeping the objective optimal */
+	private void dualOptimize() {
+		while(!infeasible.isEmpty()) {
+			Symbol leaving = infeasible.remove(infeasible.size()-1);
+			Row row = rows.get(leaving);
+			if (row==null || row.constant>=0.0) continue;
+			
+			Symbol entering = null;
+			double ratio = Double.MAX_VALUE;
+			for(int i=0; i<row.size; i++) {
+				Symbol symbol = row.symbols[i];
+				double coefficient = row.coefficients[i];
+				if (coefficient>0.0 && symbol.type!=SymbolType.DUMMY) {
+					double curRatio = objective.coefficientFor(symbol) / coefficient;
+					if (curRatio<ratio) {
+						ratio = curRatio;
+						entering = symbol;
+					}
+				}
+			}
+			if (entering==null) throw new IllegalStateException("Dual optimization failed.");
+			
+			rows.remove(leaving);
+			row.solveFor(leaving, entering);
+			substitute(entering, row);
+			rows.put(entering, row);
+			pivotCount++;
+		}
+	}
+	
+	private void removeMarkerEffects(Symbol marker, double strength) {
+		Row row = rows.get(marker);
+		if (row!=null) {
+			objective.insert(row, -strength);
+		} else {
+			objective.insert(marker, -strength);
+		}
+	}
+	
+	/**
+	 * Finds the row to pivot out so that a non-basic marker can be made basic and removed, preferring rows which keep
+	 * the tableau feasible.
+	 */
+	private Symbol getMarkerLeavingSymbol(Symbol marker) {
+		double ratio1 = Double.MAX_VALUE;
+		double ratio2 = Double.MAX_VALUE;
+		Symbol first = null;
+		Symbol second = null;
+		Symbol third = null;
+		for(Map.Entry<Symbol, Row> entry : rows.entrySet()) {
+			Row cur = entry.getValue();
+			double coefficient = cur.coefficientFor(marker);
+			if (coefficient==0.0) continue;
+			Symbol symbol = entry.getKey();
+			if (symbol.type==SymbolType.EXTERNAL) {
+				third = symbol;
+			} else if (coefficient<0.0) {
+				double ratio = -cur.constant / coefficient;
+				if (ratio<ratio1) {
+					ratio1 = ratio;
+					first = symbol;
+				}
+			} else {
+				double ratio = cur.constant / coefficient;
+				if (ratio<ratio2) {
+					ratio2 = ratio;
+					second = symbol;
+				}
+			}
+		}
+		if (first!=null) return first;
+		if (second!=null) return second;
+		return third;
+	}
+	
+	/** Unregisters any variables first seen after the first count, which only a rejected constraint referred to */
+	private void forgetVariablesAfter(int count) {
+		if (variables.size()==count) return;
+		Iterator<Variable> iterator = variables.keySet().iterator();
+		for(int i=0; i<count; i++) iterator.next();
+		while(iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+	
+	private Symbol getVariableSymbol(Variable variable) {
+		Symbol result = variables.get(variable);
+		if (result==null) {
+			result = new Symbol(SymbolType.EXTERNAL, nextId++);
+			variables.put(variable, result);
+		}
+		return result;
+	}
+	
+	private static boolean allDummies(Row row) {
+		for(int i=0; i<row.size; i++) {
+			if (row.symbols[i].type!=SymbolType.DUMMY) return false;
+		}
+		return true;
+	}
+	
+	private static boolean isPivotable(Symbol symbol) {
+		return symbol.type==SymbolType.SLACK || symbol.type==SymbolType.ERROR;
+	}
+	
+	private static boolean nearZero(double value) {
+		return (value<0.0) ? -value<EPSILON : value<EPSILON;
+	}
+	
+	private static enum SymbolType {
+		/** Stands for a user Variable */
+		EXTERNAL,
+		/** Turns an inequality into an equality */
+		SLACK,
+		/** Measures how far a non-required constraint is from being satisfied */
+		ERROR,
+		/** Marks a required equality, so that it can be found again to be removed */
+		DUMMY;
+	}
+	
+	private static final class Symbol {
+		final SymbolType type;
+		final int id;
+		
+		Symbol(SymbolType type, int id) {
+			this.type = type;
+			this.id = id;
+		}
+		
+		@Override
+		public int hashCode() {
+			return id;
+		}
+	}
+	
+	/** The symbols a constraint added to the tableau, used to find it again */
+	private static final class Tag {
+		Symbol marker;
+		Symbol other;
+	}
+	
+	private static final class EditInfo {
+		final Constraint constraint;
+		final Tag tag;
+		/** The last value suggested */
+		double constant = 0.0;
+		
+		EditInfo(Constraint constraint, Tag tag) {
+			this.constraint = constraint;
+			this.tag = tag;
+		}
+	}
+	
+	/**
+	 * One row of the tableau: basic symbol = constant + sum(coefficient * symbol). Cells are kept in parallel arrays
+	 * sorted by symbol id, so that adding one row to another is a single merge even once rows get long.
+	 */
+	private static final class Row {
+		double constant;
+		Symbol[] symbols;
+		double[] coefficients;
+		int size = 0;
+		/** Merge buffers, swapped with the cell arrays by {@link #insert(Row, double)} */
+		private Symbol[] spareSymbols = new Symbol[0];
+		private double[] spareCoefficients = new double[0];
+		
+		Row(double constant) {
+			this.constant = constant;
+			this.symbols = new Symbol[4];
+			this.coefficients = new double[4];
+		}
+		
+		Row(Row other) {
+			this.constant = other.constant;
+			this.symbols = Arrays.copyOf(other.symbols, Math.max(4, other.size));
+			this.coefficients = Arrays.copyOf(other.coefficients, Math.max(4, other.size));
+			this.size = other.size;
+		}
+		
+		/** Makes this row a copy of other */
+		void copyFrom(Row other) {
+			Arrays.fill(symbols, 0, size, null);
+			if (symbols.length<other.size) {
+				symbols = new Symbol[other.size];
+				coefficients = new double[other.size];
+			}
+			System.arraycopy(other.symbols, 0, symbols, 0, other.size);
+			System.arraycopy(other.coefficients, 0, coefficients, 0, other.size);
+			constant = other.constant;
+			size = other.size;
+		}
+		
+		void clear() {
+			constant = 0.0;
+			Arrays.fill(symbols, 0, size, null);
+			size = 0;
+		}
+		
+		/** Adds value to the constant, and returns the new constant */
+		double add(double value) {
+			constant += value;
+			return constant;
+		}
+		
+		/** Finds symbol's cell, or if it doesn't have one, returns -(insertion point)-1 */
+		int indexOf(Symbol symbol) {
+			int low = 0;
+			int high = size-1;
+			int id = symbol.id;
+			while(low<=high) {
+				int mid = (low+high) >>> 1;
+				int midId = symbols[mid].id;
+				if (midId<id) {
+					low = mid+1;
+				} else if (midId>id) {
+					high = mid-1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low+1);
+		}
+		
+		double coefficientFor(Symbol symbol) {
+			int index = indexOf(symbol);
+			return (index<0) ? 0.0 : coefficients[index];
+		}
+		
+		/** Adds coefficient * symbol to this row, dropping the cell if it cancels out */
+		void insert(Symbol symbol, double coefficient) {
+			int index = indexOf(symbol);
+			if (index<0) {
+				if (nearZero(coefficient)) return;
+				index = -(index+1);
+				if (size>=symbols.length) {
+					symbols = Arrays.copyOf(symbols, size*2);
+					coefficients = Arrays.copyOf(coefficients, size*2);
+				}
+				System.arraycopy(symbols, index, symbols, index+1, size-index);
+				System.arraycopy(coefficients, index, coefficients, index+1, size-index);
+				symbols[index] = symbol;
+				coefficients[index] = coefficient;
+				size++;
+			} else {
+				double value = coefficients[index] + coefficient;
+				if (nearZero(value)) {
+					removeAt(index);
+				} else {
+					coefficients[index] = value;
+				}
+			}
+		}
+		
+		/** Adds coefficient * other to this row */
+		void insert(Row other, double coefficient) {
+			constant += other.constant * coefficient;
+			
+			int capacity = size + other.size;
+			if (spareSymbols.length<capacity) {
+				spareSymbols = new Symbol[capacity];
+				spareCoefficients = new double[capacity];
+			}
+			Symbol[] outSymbols = spareSymbols;
+			double[] outCoefficients = spareCoefficients;
+			
+			int i = 0;
+			int j = 0;
+			int out = 0;
+			while(i<size || j<other.size) {
+				Symbol symbol;
+				double value;
+				if (j>=other.size || (i<size && symbols[i].id<other.symbols[j].id)) {
+					symbol = symbols[i];
+					value = coefficients[i++];
+				} else if (i>=size || other.symbols[j].id<symbols[i].id) {
+					symbol = other.symbols[j];
+					value = other.coefficients[j++] * coefficient;
+				} else {
+					symbol = symbols[i];
+					value = coefficients[i++] + other.coefficients[j++] * coefficient;
+				}
+				if (nearZero(value)) continue;
+				outSymbols[out] = symbol;
+				outCoefficients[out] = value;
+				out++;
+			}
+			
+			Arrays.fill(symbols, 0, size, null);
+			spareSymbols = symbols;
+			spareCoefficients = coefficients;
+			symbols = outSymbols;
+			coefficients = outCoefficients;
+			size = out;
+		}
+		
+		void remove(Symbol symbol) {
+			int index = indexOf(symbol);
+			if (index>=0) removeAt(index);
+		}
+		
+		private void removeAt(int index) {
+			size--;
+			System.arraycopy(symbols, index+1, symbols, index, size-index);
+			System.arraycopy(coefficients, index+1, coefficients, index, size-index);
+			symbols[size] = null;
+		}
+		
+		void reverseSign() {
+			constant = -constant;
+			for(int i=0; i<size; i++) coefficients[i] = -coefficients[i];
+		}
+		
+		/**
+		 * Rewrites this row, which is currently equal to zero, so that it's solved for symbol, removing symbol's cell.
+		 */
+		void solveFor(Symbol symbol) {
+			int index = indexOf(symbol);
+			double coefficient = -1.0 / coefficients[index];
+			removeAt(index);
+			constant *= coefficient;
+			for(int i=0; i<size; i++) coefficients[i] *= coefficient;
+		}
+		
+		/** Rewrites this row, which is currently solved for lhs, so that it's solved for rhs instead */
+		void solveFor(Symbol lhs, Symbol rhs) {
+			insert(lhs, -1.0);
+			solveFor(rhs);
+		}
+		
+		/** Replaces symbol in this row with the contents of row, which is solved for it */
+		void substitute(Symbol symbol, Row row) {
+			int index = indexOf(symbol);
+			if (index<0) return;
+			double coefficient = coefficients[index];
+			removeAt(index);
+			insert(row, coefficient);
+		}
+	}
+}
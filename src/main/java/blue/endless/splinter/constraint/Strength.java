@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.constraint;
+
+/**
+ * Constraint strengths. Required constraints must always hold; the others are honored in order of strength, and a
+ * single stronger constraint always wins out over any number of weaker ones (up to a thousand of them).
+ */
+public final class Strength {
+	public static final double REQUIRED = create(1000.0, 1000.0, 1000.0);
+	public static final double STRONG = create(1.0, 0.0, 0.0);
+	public static final double MEDIUM = create(0.0, 1.0, 0.0);
+	public static final double WEAK = create(0.0, 0.0, 1.0);
+	
+	private Strength() {}
+	
+	/**
+	 * Creates a strength out of strong, medium, and weak parts, each of which should be between 0 and 1000.
+	 */
+	public static double create(double strong, double medium, double weak) {
+		return create(strong, medium, weak, 1.0);
+	}
+	
+	/**
+	 * Creates a strength out of strong, medium, and weak parts, each of which is multiplied by weight and then clipped
+	 * to between 0 and 1000.
+	 */
+	public static double create(double strong, double medium, double weak, double weight) {
+		double result = 0.0;
+		result += Math.max(0.0, Math.min(1000.0, strong * weight)) * 1_000_000.0;
+		result += Math.max(0.0, Math.min(1000.0, medium * weight)) * 1_000.0;
+		result += Math.max(0.0, Math.min(1000.0, weak * weight));
+		return result;
+	}
+	
+	/** Clips a strength to between zero and {@link #REQUIRED} */
+	public static double clip(double strength) {
+		return Math.max(0.0, Math.min(REQUIRED, strength));
+	}
+}
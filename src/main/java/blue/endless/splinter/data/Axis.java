@@ -38,4 +38,8 @@ public enum Axis {
 	public int choose(int x, int y) {
 		return (this == HORIZONTAL) ? x : y;
 	}
+	
+	public <T> T choose(T x, T y) {
+		return (this == HORIZONTAL) ? x : y;
+	}
 }
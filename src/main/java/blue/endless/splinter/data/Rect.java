@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package blue.endless.splinter.data;
+
+/**
+ * An axis-aligned rectangle in pixels.
+ */
+public record Rect(int x, int y, int width, int height) {
+	public int right() {
+		return x + width;
+	}
+	
+	public int bottom() {
+		return y + height;
+	}
+	
+	/** Returns true if this rectangle shares any area with the rectangle given */
+	public boolean intersects(int x, int y, int width, int height) {
+		return x < this.x+this.width && this.x < x+width && y < this.y+this.height && this.y < y+height;
+	}
+	
+	/** Returns true if the given point lies inside this rectangle */
+	public boolean contains(int x, int y) {
+		return x >= this.x && y >= this.y && x < this.x+this.width && y < this.y+this.height;
+	}
+}
@@ -26,24 +26,55 @@ package blue.endless.splinter.metrics;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.function.Supplier;
+
+import blue.endless.splinter.data.Axis;
 
 /**
  * Represents arbitrarted grid sizes based on constraints
+ * 
+ * <p>Small grids store every row and column. Once an axis reaches {@link #SPARSE_MIN_CELLS} cells and fewer than
+ * {@link #SPARSE_MAX_DENSITY} of them are occupied (have an element starting or ending on them), that axis switches to
+ * sparse mode: only occupied rows or columns are stored, and each run of empty ones between them takes up no space.
+ * Either way, the getCell methods take real cell coordinates.
  */
 public class GridMetrics {
+	/** Axes with fewer cells than this are always stored densely */
+	public static final int SPARSE_MIN_CELLS = 1024;
+	/** Axes where a smaller fraction of cells than this are occupied are stored sparsely */
+	public static final double SPARSE_MAX_DENSITY = 0.25;
+	
 	public LayoutContainerMetrics containerMetrics;
 	public int width = 1;
 	public int height = 1;
-	public Element[] xMetrics = new Element[4];
-	public Element[] yMetrics = new Element[4];
+	public final Tracks xMetrics = new Tracks();
+	public final Tracks yMetrics = new Tracks();
 	public List<Constraint> xConstraints = new ArrayList<>();
 	public List<Constraint> yConstraints = new ArrayList<>();
+	/** Constraints from previous layouts, kept so that reusing this GridMetrics doesn't allocate new ones */
+	private final List<Constraint> spareConstraints = new ArrayList<>();
+	/** False if cells have been added since the tracks were last allocated */
+	private boolean allocated = false;
 	
-	public GridMetrics() {
-		fillEmpties(xMetrics, Element::new);
-		fillEmpties(yMetrics, Element::new);
+	public GridMetrics() {}
+	
+	/**
+	 * Resets this GridMetrics to the state of a freshly-constructed one, but keeps all its allocated rows, columns, and
+	 * constraints around for reuse.
+	 */
+	public void clear() {
+		containerMetrics = null;
+		xMetrics.clear(xMetrics.count);
+		yMetrics.clear(yMetrics.count);
+		width = 1;
+		height = 1;
+		allocated = false;
+		
+		for(int i=0; i<xConstraints.size(); i++) spareConstraints.add(xConstraints.get(i));
+		for(int i=0; i<yConstraints.size(); i++) spareConstraints.add(yConstraints.get(i));
+		xConstraints.clear();
+		yConstraints.clear();
 	}
 	
 	/** Gets the width of the grid in cells */
@@ -52,51 +83,149 @@ public class GridMetrics {
 	/** Gets the height of the grid in cells */
 	public int getHeight() { return height; }
 	
+	/** Gets the width or height of the grid in cells */
+	public int getCells(Axis axis) { return axis.choose(width, height); }
+	
+	/** Gets the columns or rows of the grid. DO NOT MODIFY the returned metrics! Only Layout is allowed to do that */
+	public Tracks getTracks(Axis axis) { return axis.choose(xMetrics, yMetrics); }
+	
+	/** Gets the multi-cell constraints on the columns or rows of the grid */
+	public List<Constraint> getConstraints(Axis axis) { return axis.choose(xConstraints, yConstraints); }
+	
 	/** Enlarges the grid if necessary to contain the specified cell coordinates */
 	public void ensureSpaceFor(int x, int y) {
 		width = Math.max(width, x+1);
 		height = Math.max(height, y+1);
 		
-		xMetrics = reserve(xMetrics, x);
-		yMetrics = reserve(yMetrics, y);
-		
-		fillEmpties(xMetrics, Element::new);
-		fillEmpties(yMetrics, Element::new);
+		xMetrics.addOccupied(x);
+		yMetrics.addOccupied(y);
+		allocated = false;
+	}
+	
+	/** Enlarges the grid if necessary to contain the leading cell of the specified element, and notes all the cells it touches */
+	public void ensureSpaceFor(OldLayoutElementMetrics metrics) {
+		ensureSpaceFor(metrics.getCellX(), metrics.getCellY());
+		if (metrics.getCellsX()>1) xMetrics.addOccupied(metrics.getCellX()+(metrics.getCellsX()-1));
+		if (metrics.getCellsY()>1) yMetrics.addOccupied(metrics.getCellY()+(metrics.getCellsY()-1));
+	}
+	
+	/**
+	 * Decides whether each axis is stored densely or sparsely, and makes room for its tracks. Called automatically by
+	 * addElementMetrics, but must be called before tracks are looked up if no element metrics are added.
+	 */
+	public void allocateTracks() {
+		if (allocated) return;
+		xMetrics.allocate(width);
+		yMetrics.allocate(height);
+		allocated = true;
+	}
+	
+	/**
+	 * Sizes the grid to exactly width by height cells, stored densely, for callers which fill in every track themselves
+	 * instead of adding element metrics. The grid must have been cleared first.
+	 */
+	public void allocateDense(int width, int height) {
+		this.width = width;
+		this.height = height;
+		xMetrics.allocateDense(width);
+		yMetrics.allocateDense(height);
+		allocated = true;
 	}
 	
 	public int getCellWidth(int x) {
 		if (!checkBounds(x,0)) return 0;
-		return xMetrics[x].size;
+		int track = xMetrics.find(x);
+		return (track<0) ? 0 : xMetrics.size[track];
 	}
 	
 	public int getCellHeight(int y) {
 		if (!checkBounds(0,y)) return 0;
-		return yMetrics[y].size;
+		int track = yMetrics.find(y);
+		return (track<0) ? 0 : yMetrics.size[track];
 	}
 	
 	public int getCellLeft(int x) {
 		if (!checkBounds(x,0)) return 0;
-		return xMetrics[x].location;
+		return xMetrics.getStart(x);
 	}
 	
 	public int getCellTop(int y) {
 		if (!checkBounds(0,y)) return 0;
-		return yMetrics[y].location;
+		return yMetrics.getStart(y);
+	}
+	
+	/** Gets the width or height of a cell, depending on the axis */
+	public int getCellSize(Axis axis, int cell) {
+		return (axis==Axis.HORIZONTAL) ? getCellWidth(cell) : getCellHeight(cell);
+	}
+	
+	/** Gets the left or top edge of a cell, depending on the axis */
+	public int getCellStart(Axis axis, int cell) {
+		return (axis==Axis.HORIZONTAL) ? getCellLeft(cell) : getCellTop(cell);
+	}
+	
+	/**
+	 * Changes the width of one column, moving every column after it. Costs O(log n) rather than a full
+	 * {@link #recalcStarts()}. Has no effect on the empty columns of a sparse grid.
+	 */
+	public void setCellWidth(int x, int width) {
+		if (!checkBounds(x,0)) return;
+		int track = xMetrics.find(x);
+		if (track>=0) xMetrics.setSize(track, width);
+	}
+	
+	/**
+	 * Changes the height of one row, moving every row after it. Costs O(log n) rather than a full
+	 * {@link #recalcStarts()}. Has no effect on the empty rows of a sparse grid.
+	 */
+	public void setCellHeight(int y, int height) {
+		if (!checkBounds(0,y)) return;
+		int track = yMetrics.find(y);
+		if (track>=0) yMetrics.setSize(track, height);
+	}
+	
+	/** Gets the column containing the given x position, relative to the grid's origin, or -1 if it's outside the grid */
+	public int columnAt(int x) {
+		int track = xMetrics.trackAt(x);
+		if (track<0) return -1;
+		return (xMetrics.sparse) ? xMetrics.index[track] : track;
+	}
+	
+	/** Gets the row containing the given y position, relative to the grid's origin, or -1 if it's outside the grid */
+	public int rowAt(int y) {
+		int track = yMetrics.trackAt(y);
+		if (track<0) return -1;
+		return (yMetrics.sparse) ? yMetrics.index[track] : track;
+	}
+	
+	/**
+	 * Gets the cell containing the given position, relative to the grid's origin. Costs O(log n) in the number of rows
+	 * and columns.
+	 * @return the cell at this position, or null if the position is outside the grid.
+	 */
+	public Cell cellAt(int x, int y) {
+		int column = columnAt(x);
+		if (column<0) return null;
+		int row = rowAt(y);
+		if (row<0) return null;
+		return new Cell(column, row);
 	}
 	
 	/**
-	 * Gets an array containing metrics for each row of the represented grid. The array may be larger than necessary, but is guaranteed not to be smaller than {@link #getHeight()}.
-	 * DO NOT MODIFY the returned array! Only Layout is allowed to do that
+	 * Gets the metrics for each row of the represented grid. The arrays may be larger than necessary, but are guaranteed not to be smaller than {@link Tracks#count}.
+	 * If the rows are sparse, track i holds the metrics for row {@code index[i]}.
+	 * DO NOT MODIFY the returned metrics! Only Layout is allowed to do that
 	 */
-	public Element[] getRows() {
+	public Tracks getRows() {
 		return yMetrics;
 	}
 	
 	/**
-	 * Gets an array containing metrics for each column of the represented grid. The array may be larger than necessary, but is guaranteed not to be smaller than {@link #getWidth()}.
-	 * DO NOT MODIFY the returned array! Only Layout is allowed to do that
+	 * Gets the metrics for each column of the represented grid. The arrays may be larger than necessary, but are guaranteed not to be smaller than {@link Tracks#count}.
+	 * If the columns are sparse, track i holds the metrics for column {@code index[i]}.
+	 * DO NOT MODIFY the returned metrics! Only Layout is allowed to do that
 	 */
-	public Element[] getColumns() {
+	public Tracks getColumns() {
 		return xMetrics;
 	}
 	
@@ -106,86 +235,103 @@ public class GridMetrics {
 	
 	/** Merges the given layoutMetrics with the existing ones */
 	public void addElementMetrics(OldLayoutElementMetrics metrics) {
-		if (metrics.cellX<0 || metrics.cellY<0 || metrics.cellX+(metrics.cellsX-1)>=width || metrics.cellY+(metrics.cellsY-1)>=height) return;
-		
-		if (metrics.cellsX>1) {
-			if (metrics.relativeMinX>0 || metrics.fixedMinX>0) {
-				Constraint constraint = new Constraint();
-				constraint.fixedSize = metrics.fixedMinX;
-				constraint.relativeSize = metrics.relativeMinX;
-				constraint.index = metrics.cellX;
-				constraint.span = metrics.cellsX;
-				xConstraints.add(constraint);
-				
-				for(int i=0; i<metrics.cellsX; i++) {
-					Element elem = xMetrics[metrics.cellX+i];
-					elem.multiColumnApplied = true;
-				}
-			}
-		} else {
-			Element column = xMetrics[metrics.cellX];
-			addElementMetrics(containerMetrics, column, metrics.cellX, metrics.fixedMinX, metrics.relativeMinX);
-		}
-		
-		if (metrics.cellsY>1) {
-			if (metrics.relativeMinY>0 || metrics.fixedMinY>0) {
-				Constraint constraint = new Constraint();
-				constraint.fixedSize = metrics.fixedMinY;
-				constraint.relativeSize = metrics.relativeMinY;
-				constraint.index = metrics.cellY;
-				constraint.span = metrics.cellsY;
-				yConstraints.add(constraint);
-				
-				for(int i=0; i<metrics.cellsY; i++) {
-					Element elem = yMetrics[metrics.cellY+i];
-					elem.multiColumnApplied = true;
-				}
+		addElementMetrics(metrics, -1, -1);
+	}
+	
+	/**
+	 * Merges the given layoutMetrics with the existing ones, treating the element's natural size as an additional
+	 * fixed minimum size.
+	 */
+	public void addElementMetrics(OldLayoutElementMetrics metrics, int naturalWidth, int naturalHeight) {
+		addElementMetrics(metrics, Axis.HORIZONTAL, naturalWidth);
+		addElementMetrics(metrics, Axis.VERTICAL, naturalHeight);
+	}
+	
+	/**
+	 * Merges the given layoutMetrics with the existing ones along one axis only, treating the element's natural size
+	 * along that axis as an additional fixed minimum size.
+	 */
+	public void addElementMetrics(OldLayoutElementMetrics metrics, Axis axis, int naturalSize) {
+		if (metrics.getCellX()<0 || metrics.getCellY()<0 || metrics.getCellX()+(metrics.getCellsX()-1)>=width || metrics.getCellY()+(metrics.getCellsY()-1)>=height) return;
+		allocateTracks();
+		
+		int cell = axis.choose(metrics.getCellX(), metrics.getCellY());
+		int cells = axis.choose(metrics.getCellsX(), metrics.getCellsY());
+		int fixedMin = Math.max(axis.choose(metrics.getFixedMinX(), metrics.getFixedMinY()), naturalSize);
+		int relativeMin = axis.choose(metrics.getRelativeMinX(), metrics.getRelativeMinY());
+		Tracks tracks = getTracks(axis);
+		
+		if (cells>1) {
+			if (relativeMin>0 || fixedMin>0) {
+				addConstraint(tracks, getConstraints(axis), cell, cells, fixedMin, relativeMin);
 			}
 		} else {
-			Element row = yMetrics[metrics.cellY];
-			addElementMetrics(containerMetrics, row, metrics.cellY, metrics.fixedMinY, metrics.relativeMinY);
+			addElementMetrics(containerMetrics, tracks, cell, fixedMin, relativeMin);
 		}
 	}
 	
-	protected void addElementMetrics(LayoutContainerMetrics containerMetrics, Element existing, int index, int fixed, int relative) {
-		int paddingLeading = containerMetrics.cellPadding; if (index>0) paddingLeading /= 2;
-		int paddingTrailing = containerMetrics.cellPadding; if (index<width-1) paddingTrailing /= 2;
-		if (fixed>0) {
-			existing.fixedSize = Math.max(existing.fixedSize, fixed+paddingLeading+paddingTrailing);
+	/**
+	 * Replaces the columns or rows of this grid, and their constraints, with copies of another grid's. The other grid
+	 * must have been built from the same elements.
+	 */
+	public void copyAxis(GridMetrics other, Axis axis) {
+		if (axis==Axis.HORIZONTAL) {
+			width = other.width;
+		} else {
+			height = other.height;
+		}
+		getTracks(axis).copyFrom(other.getTracks(axis));
+		
+		List<Constraint> constraints = getConstraints(axis);
+		for(int i=0; i<constraints.size(); i++) spareConstraints.add(constraints.get(i));
+		constraints.clear();
+		List<Constraint> otherConstraints = other.getConstraints(axis);
+		for(int i=0; i<otherConstraints.size(); i++) {
+			Constraint source = otherConstraints.get(i);
+			Constraint constraint = obtainConstraint();
+			constraint.index = source.index;
+			constraint.span = source.span;
+			constraint.fixedSize = source.fixedSize;
+			constraint.relativeSize = source.relativeSize;
+			constraints.add(constraint);
 		}
-		existing.relativeSize = Math.max(existing.relativeSize, relative);
 	}
 	
-	public void recalcStarts() {
-		int xPos = 0;
-		for(Element metrics : xMetrics) {
-			metrics.location = xPos;
-			xPos += metrics.size;
-		}
+	protected void addElementMetrics(LayoutContainerMetrics containerMetrics, Tracks tracks, int cell, int fixed, int relative) {
+		int index = tracks.find(cell);
+		if (index<0) return;
 		
-		int yPos = 0;
-		for(Element metrics : yMetrics) {
-			metrics.location = yPos;
-			yPos += metrics.size;
+		int paddingLeading = containerMetrics.cellPadding; if (cell>0) paddingLeading /= 2;
+		int paddingTrailing = containerMetrics.cellPadding; if (cell<width-1) paddingTrailing /= 2;
+		if (fixed>0) {
+			tracks.fixedSize[index] = Math.max(tracks.fixedSize[index], fixed+paddingLeading+paddingTrailing);
 		}
+		tracks.relativeSize[index] = Math.max(tracks.relativeSize[index], relative);
 	}
 	
-	private static <T> T[] reserve(T[] original, int index) {
-		if (index<original.length) return original;
-		int scaled = Math.max(index+1, original.length*2);
+	private void addConstraint(Tracks tracks, List<Constraint> constraints, int cell, int cells, int fixed, int relative) {
+		int first = tracks.ceilTrack(cell);
+		int last = tracks.floorTrack(cell+(cells-1));
+		if (last<first) return;
 		
-		T[] replacement = Arrays.copyOf(original, scaled);
+		Constraint constraint = obtainConstraint();
+		constraint.fixedSize = fixed;
+		constraint.relativeSize = relative;
+		constraint.index = first;
+		constraint.span = (last-first)+1;
+		constraints.add(constraint);
 		
-		return replacement;
+		tracks.multiColumnApplied.set(first, last+1);
 	}
 	
-	/**
-	 * !important - each Element in the array needs to be a *unique* object because it's mutated frequently during the process of layout.
-	 */
-	private static <T> void fillEmpties(T[] subject, Supplier<T> supplier) {
-		for(int i=0; i<subject.length; i++) {
-			if (subject[i]==null) subject[i] = supplier.get();
-		}
+	private Constraint obtainConstraint() {
+		if (spareConstraints.isEmpty()) return new Constraint();
+		return spareConstraints.remove(spareConstraints.size()-1);
+	}
+	
+	public void recalcStarts() {
+		xMetrics.recalcStarts(xMetrics.count);
+		yMetrics.recalcStarts(yMetrics.count);
 	}
 	
 	private boolean checkBounds(int x, int y) {
@@ -194,24 +340,275 @@ public class GridMetrics {
 	
 	@Override
 	public String toString() {
-		return "{ width: "+width+", height: "+height+", xMetrics: "+Arrays.toString(xMetrics)+", yMetrics: "+Arrays.toString(yMetrics)+" }";
+		return "{ width: "+width+", height: "+height+", xMetrics: "+xMetrics.toString(xMetrics.count)+", yMetrics: "+yMetrics.toString(yMetrics.count)+" }";
 	}
 	
-	/** Represents metrics for one row or column */
-	public static class Element {
-		public int fixedSize = 0;
-		public int relativeSize = 0;
-		public boolean multiColumnApplied = false;
+	/**
+	 * Represents metrics for every row, or every column, of a grid. Each row or column's metrics are stored at its index
+	 * in a set of parallel arrays, rather than in an object per row or column. In sparse mode, only occupied rows or
+	 * columns are stored, in cell order, and {@link #index} holds the cell coordinate of each one.
+	 */
+	public static class Tracks {
+		public int[] fixedSize = new int[4];
+		public int[] relativeSize = new int[4];
+		/** Leading edge of each track. Tracks after one resized with {@link #setSize(int, int)} should use {@link #getLocation(int)}. */
+		public int[] location = new int[4];
+		public int[] size = new int[4];
+		public final BitSet multiColumnApplied = new BitSet();
+		/** The number of tracks in use. When not sparse, this is the width or height of the grid. */
+		public int count = 1;
+		/** True if only occupied rows or columns are stored */
+		public boolean sparse = false;
+		/** If sparse, the cell coordinate of each track, in ascending order */
+		public int[] index = new int[4];
+		
+		/**
+		 * Fenwick tree over size, so that one track can be resized without moving every track after it. Slot i+1 holds
+		 * a partial sum ending at track i. Only built once a track is resized after {@link #recalcStarts(int)}.
+		 */
+		private int[] tree = new int[5];
+		private boolean treeBuilt = false;
+		/** location is only accurate for tracks before this one. Later tracks are located through the tree. */
+		private int staleFrom = Integer.MAX_VALUE;
+		
+		/** Cell coordinates which have been touched by an element since the last clear, possibly with duplicates */
+		private int[] occupied = new int[8];
+		private int occupiedCount = 0;
+		
+		void addOccupied(int cell) {
+			if (cell<0) return;
+			if (occupiedCount>=occupied.length) occupied = Arrays.copyOf(occupied, occupied.length*2);
+			occupied[occupiedCount] = cell;
+			occupiedCount++;
+		}
+		
+		/** Chooses dense or sparse storage for an axis the given number of cells long, and reserves room for its tracks */
+		void allocate(int cells) {
+			sparse = false;
+			if (cells>=SPARSE_MIN_CELLS && occupiedCount < cells*SPARSE_MAX_DENSITY) {
+				Arrays.sort(occupied, 0, occupiedCount);
+				int unique = 0;
+				for(int i=0; i<occupiedCount; i++) {
+					int cell = occupied[i];
+					if (cell>=cells) break;
+					if (unique>0 && occupied[unique-1]==cell) continue;
+					occupied[unique] = cell;
+					unique++;
+				}
+				
+				if (unique < cells*SPARSE_MAX_DENSITY) {
+					sparse = true;
+					count = unique;
+					if (index.length<count) index = new int[Math.max(count, index.length*2)];
+					System.arraycopy(occupied, 0, index, 0, count);
+				}
+			}
+			if (!sparse) count = cells;
+			occupiedCount = 0;
+			reserve(count);
+		}
+		
+		void allocateDense(int cells) {
+			sparse = false;
+			count = cells;
+			occupiedCount = 0;
+			reserve(count);
+		}
+		
+		/** Gets the track holding the given cell, or a negative number if the cell is an empty one in a sparse axis */
+		public int find(int cell) {
+			if (!sparse) return cell;
+			return Arrays.binarySearch(index, 0, count, cell);
+		}
+		
+		/** Gets the track holding the given cell, or if the cell is empty, the first track after it */
+		public int ceilTrack(int cell) {
+			int track = find(cell);
+			return (track>=0) ? track : -track-1;
+		}
+		
+		/** Gets the track holding the given cell, or if the cell is empty, the last track before it */
+		public int floorTrack(int cell) {
+			int track = find(cell);
+			return (track>=0) ? track : -track-2;
+		}
 		
-		public int location = 0;
-		public int size = 0;
+		/** Gets the location of the leading edge of the given cell. Empty cells start where the next track does. */
+		public int getStart(int cell) {
+			int track = ceilTrack(cell);
+			if (track<count) return getLocation(track);
+			if (count==0) return 0;
+			return getLocation(count-1) + size[count-1];
+		}
 		
-		@Override
-		public String toString() {
-			return "{ fixedSize: "+fixedSize+", relativeSize: "+relativeSize+", location: "+location+", size: "+size+" }";
+		/**
+		 * Gets the location of the leading edge of a track. Unlike reading {@link #location} directly, this stays correct
+		 * after {@link #setSize(int, int)}.
+		 */
+		public int getLocation(int track) {
+			if (track<staleFrom) return location[track];
+			return sumBefore(track);
+		}
+		
+		/** Resizes one track in O(log n), shifting the location of every track after it */
+		public void setSize(int track, int newSize) {
+			if (!treeBuilt) buildTree();
+			int delta = newSize - size[track];
+			if (delta==0) return;
+			size[track] = newSize;
+			for(int i=track+1; i<=count; i+=(i & -i)) {
+				tree[i] += delta;
+			}
+			staleFrom = Math.min(staleFrom, track+1);
+		}
+		
+		/**
+		 * Finds the track containing the given location, in O(log n). Zero-size tracks are never found. Assumes no
+		 * track has a negative size.
+		 * @return the index of the track, or -1 if the location lies outside all of them.
+		 */
+		public int trackAt(int pos) {
+			if (pos<0 || count==0) return -1;
+			
+			int track;
+			if (staleFrom==Integer.MAX_VALUE) {
+				//The last track starting at or before pos
+				int lo = 0;
+				int hi = count;
+				while(lo<hi) {
+					int mid = (lo+hi) >>> 1;
+					if (location[mid]<=pos) {
+						lo = mid+1;
+					} else {
+						hi = mid;
+					}
+				}
+				track = lo-1;
+				if (track<0) return -1;
+			} else {
+				//Descend the tree to find the most tracks whose sizes add up to pos or less
+				track = 0;
+				int remaining = pos;
+				for(int step=Integer.highestOneBit(count); step>0; step >>>= 1) {
+					int next = track+step;
+					if (next<=count && tree[next]<=remaining) {
+						track = next;
+						remaining -= tree[next];
+					}
+				}
+				if (track>=count) return -1;
+			}
+			
+			return (pos < getLocation(track)+size[track]) ? track : -1;
+		}
+		
+		/** Gets the total size of all tracks before the given one */
+		private int sumBefore(int track) {
+			int result = 0;
+			for(int i=track; i>0; i-=(i & -i)) {
+				result += tree[i];
+			}
+			return result;
+		}
+		
+		/** Builds the tree from the current sizes in O(n) */
+		private void buildTree() {
+			if (tree.length<count+1) tree = new int[Math.max(count+1, tree.length*2)];
+			tree[0] = 0;
+			for(int i=1; i<=count; i++) {
+				tree[i] = size[i-1];
+			}
+			for(int i=1; i<=count; i++) {
+				int parent = i + (i & -i);
+				if (parent<=count) tree[parent] += tree[i];
+			}
+			treeBuilt = true;
+		}
+		
+		/** Gets the number of rows or columns these Tracks currently have room for */
+		public int capacity() {
+			return size.length;
+		}
+		
+		/** Makes sure there is room for at least count tracks. Grows by doubling, so that growth is amortized. */
+		public void reserve(int count) {
+			if (count<=size.length) return;
+			int scaled = Math.max(count, size.length*2);
+			
+			fixedSize = Arrays.copyOf(fixedSize, scaled);
+			relativeSize = Arrays.copyOf(relativeSize, scaled);
+			location = Arrays.copyOf(location, scaled);
+			size = Arrays.copyOf(size, scaled);
+		}
+		
+		/** Makes these tracks an exact copy of other's tracks in use, including their sparse index */
+		public void copyFrom(Tracks other) {
+			clear(count);
+			reserve(other.count);
+			count = other.count;
+			sparse = other.sparse;
+			if (sparse) {
+				if (index.length<count) index = new int[Math.max(count, index.length*2)];
+				System.arraycopy(other.index, 0, index, 0, count);
+			}
+			System.arraycopy(other.fixedSize, 0, fixedSize, 0, count);
+			System.arraycopy(other.relativeSize, 0, relativeSize, 0, count);
+			System.arraycopy(other.location, 0, location, 0, count);
+			System.arraycopy(other.size, 0, size, 0, count);
+			multiColumnApplied.or(other.multiColumnApplied);
+			if (other.staleFrom!=Integer.MAX_VALUE) recalcStarts(count);
+		}
+		
+		/**
+		 * Zeroes out the first count tracks, and returns to dense mode with one track. Tracks past count are assumed to
+		 * be untouched already.
+		 */
+		public void clear(int count) {
+			count = Math.min(count, size.length);
+			Arrays.fill(fixedSize, 0, count, 0);
+			Arrays.fill(relativeSize, 0, count, 0);
+			Arrays.fill(location, 0, count, 0);
+			Arrays.fill(size, 0, count, 0);
+			multiColumnApplied.clear();
+			this.count = 1;
+			sparse = false;
+			occupiedCount = 0;
+			treeBuilt = false;
+			staleFrom = Integer.MAX_VALUE;
+		}
+		
+		/** Places the first count tracks end to end, starting at zero */
+		public void recalcStarts(int count) {
+			int pos = 0;
+			for(int i=0; i<count; i++) {
+				location[i] = pos;
+				pos += size[i];
+			}
+			treeBuilt = false;
+			staleFrom = Integer.MAX_VALUE;
+		}
+		
+		/** Returns true if this track has no fixed or relative size of its own, and isn't part of a multi-cell constraint */
+		public boolean isUnspecified(int index) {
+			return !multiColumnApplied.get(index) && fixedSize[index]<=0 && relativeSize[index]<=0;
+		}
+		
+		public String toString(int count) {
+			StringBuilder result = new StringBuilder("[");
+			for(int i=0; i<count; i++) {
+				if (i>0) result.append(", ");
+				result.append("{ ");
+				if (sparse) result.append("cell: "+index[i]+", ");
+				result.append("fixedSize: "+fixedSize[i]+", relativeSize: "+relativeSize[i]+", location: "+location[i]+", size: "+size[i]+" }");
+			}
+			result.append(']');
+			return result.toString();
 		}
 	}
 	
+	/** The coordinates of one cell of a grid */
+	public record Cell(int x, int y) {}
+	
 	public static class Constraint {
 		/** Row or column index this grid constraint's leading edge is attached to */
 		public int index = 0;
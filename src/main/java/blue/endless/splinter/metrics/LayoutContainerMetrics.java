@@ -24,12 +24,32 @@
 
 package blue.endless.splinter.metrics;
 
+/**
+ * Settings which apply to a container's whole grid. Setters notify the change listener, if there is one, so that the
+ * container can invalidate its layout.
+ */
 public class LayoutContainerMetrics {
 	protected int cellPadding;
 	protected boolean collapseMargins;
+	/** Called whenever any of the values above change. */
+	private Runnable changeListener = null;
+	
+	/**
+	 * Sets the listener to be run after any of these metrics change, replacing any previous one. Pass null to remove the
+	 * listener.
+	 */
+	public void setChangeListener(Runnable listener) {
+		this.changeListener = listener;
+	}
+	
+	protected void changed() {
+		if (changeListener!=null) changeListener.run();
+	}
 
 	public LayoutContainerMetrics setCellPadding(int amount) {
+		if (this.cellPadding==amount) return this;
 		this.cellPadding = amount;
+		changed();
 		return this;
 	}
 	
@@ -38,7 +58,9 @@ public class LayoutContainerMetrics {
 	}
 	
 	public LayoutContainerMetrics setCollapseMargins(boolean collapseMargins) {
+		if (this.collapseMargins==collapseMargins) return this;
 		this.collapseMargins = collapseMargins;
+		changed();
 		return this;
 	}
 	
@@ -44,8 +44,33 @@ public class LayoutElementAxisMetrics {
 	int fixedMin;
 	int relativeMin;
 	
+	/** Called whenever any of the values above change. */
+	private Runnable changeListener = null;
+	
 	public LayoutElementAxisMetrics() {}
 	public LayoutElementAxisMetrics(int location) {
 		this.location = location;
 	}
+	
+	/**
+	 * Sets the listener to be run after any of these metrics change, replacing any previous one. Containers use this to
+	 * invalidate their layout, and with it their children's natural sizes. Pass null to remove the listener.
+	 */
+	public void setChangeListener(Runnable listener) {
+		this.changeListener = listener;
+	}
+	
+	/**
+	 * Gets the inflexible minimum size of the element along this axis, or a negative number if it has no intrinsic size.
+	 */
+	public int getNaturalSize() {
+		return naturalSize;
+	}
+	
+	public LayoutElementAxisMetrics setNaturalSize(int naturalSize) {
+		if (this.naturalSize==naturalSize) return this;
+		this.naturalSize = naturalSize;
+		if (changeListener!=null) changeListener.run();
+		return this;
+	}
 }
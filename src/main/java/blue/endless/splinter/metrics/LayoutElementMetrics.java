@@ -13,4 +13,10 @@ public record LayoutElementMetrics(LayoutElementAxisMetrics horizontal, LayoutEl
 	public LayoutElementAxisMetrics getAxis(Axis axis) {
 		return (axis == Axis.HORIZONTAL) ? horizontal : vertical;
 	}
+	
+	/** Sets the change listener on both axes. See {@link LayoutElementAxisMetrics#setChangeListener(Runnable)}. */
+	public void setChangeListener(Runnable listener) {
+		horizontal.setChangeListener(listener);
+		vertical.setChangeListener(listener);
+	}
 }
@@ -27,42 +27,50 @@ package blue.endless.splinter.metrics;
 import blue.endless.splinter.data.Alignment;
 import blue.endless.splinter.data.GrowType;
 
+/**
+ * The cell, span, padding, and size constraints a container holds for one of its children. Every setter notifies the
+ * change listener, if there is one, so that a container can bump its layout version and stop serving layouts it cached
+ * before the change.
+ */
 public class OldLayoutElementMetrics {
 	public static final OldLayoutElementMetrics EMPTY_METRICS = new OldLayoutElementMetrics(-1,-1,0,0);
 	
 	/** The X coordinate, in cells, of the child element */
-	public int cellX = 0;
+	private int cellX = 0;
 	/** The Y coordinate, in cells, of the child element */
-	public int cellY;
+	private int cellY;
 	/** The number of cells wide the child element is permitted to occupy (usually 1) */
-	public int cellsX = 1;
+	private int cellsX = 1;
 	/** The number of cells high the child element is permitted to occupy (usually 1) */
-	public int cellsY = 1;
+	private int cellsY = 1;
 	
 	//The amount of space there must be between the child element and the borders of its logical cell
-	public int paddingTop    = 0;
-	public int paddingLeft   = 0;
-	public int paddingRight  = 0;
-	public int paddingBottom = 0;
+	private int paddingTop    = 0;
+	private int paddingLeft   = 0;
+	private int paddingRight  = 0;
+	private int paddingBottom = 0;
 	
-	public GrowType horizontalGrowType = GrowType.FILL;
-	public GrowType verticalGrowType = GrowType.FILL;
+	private GrowType horizontalGrowType = GrowType.FILL;
+	private GrowType verticalGrowType = GrowType.FILL;
 	
-	public Alignment horizontalAlignment = Alignment.CENTER;
-	public Alignment verticalAlignment = Alignment.CENTER;
+	private Alignment horizontalAlignment = Alignment.CENTER;
+	private Alignment verticalAlignment = Alignment.CENTER;
 	
 	/** A number of canvas pixels wide that the child component is not allowed to shrink below. */
-	public int fixedMinX = -1;
+	private int fixedMinX = -1;
 	/** A percentage of *total parent width* that the child component is not allowed to shrink below. */
-	public int relativeMinX = -1;
+	private int relativeMinX = -1;
 	
 	/** A number of canvas pixels tall that the child component is not allowed to shrink below. */
-	public int fixedMinY = -1;
+	private int fixedMinY = -1;
 	/** A percentage of *total parent height* that the child component is not allowed to shrink below. */
-	public int relativeMinY = -1;
+	private int relativeMinY = -1;
+	
+	private int naturalWidth = -1;
+	private int naturalHeight = -1;
 	
-	public int naturalWidth = -1;
-	public int naturalHeight = -1;
+	/** Called whenever any of the values above change. */
+	private Runnable changeListener = null;
 	
 	//TODO: Any additional constraints to be communicated to the layout engine?
 	
@@ -80,29 +88,165 @@ public class OldLayoutElementMetrics {
 		this.cellsY = 1;
 	}
 	
+	/**
+	 * Sets the listener to be run after any of these metrics change, replacing any previous one. Containers use this to
+	 * invalidate their layout. Pass null to remove the listener.
+	 */
+	public void setChangeListener(Runnable listener) {
+		this.changeListener = listener;
+	}
+	
+	private void changed() {
+		if (changeListener!=null) changeListener.run();
+	}
+	
+	public int getCellX() { return cellX; }
+	public int getCellY() { return cellY; }
+	public int getCellsX() { return cellsX; }
+	public int getCellsY() { return cellsY; }
+	public int getPaddingTop() { return paddingTop; }
+	public int getPaddingLeft() { return paddingLeft; }
+	public int getPaddingRight() { return paddingRight; }
+	public int getPaddingBottom() { return paddingBottom; }
+	public GrowType getHorizontalGrowType() { return horizontalGrowType; }
+	public GrowType getVerticalGrowType() { return verticalGrowType; }
+	public Alignment getHorizontalAlignment() { return horizontalAlignment; }
+	public Alignment getVerticalAlignment() { return verticalAlignment; }
+	public int getFixedMinX() { return fixedMinX; }
+	public int getFixedMinY() { return fixedMinY; }
+	public int getRelativeMinX() { return relativeMinX; }
+	public int getRelativeMinY() { return relativeMinY; }
+	public int getNaturalWidth() { return naturalWidth; }
+	public int getNaturalHeight() { return naturalHeight; }
+	
+	/** Moves the child element to the given cell */
+	public OldLayoutElementMetrics setCell(int cellX, int cellY) {
+		if (this.cellX==cellX && this.cellY==cellY) return this;
+		this.cellX = cellX;
+		this.cellY = cellY;
+		changed();
+		return this;
+	}
+	
+	/** Sets how many cells wide the child element may occupy */
+	public OldLayoutElementMetrics setCellsX(int cellsX) {
+		if (this.cellsX==cellsX) return this;
+		this.cellsX = cellsX;
+		changed();
+		return this;
+	}
+	
+	/** Sets how many cells high the child element may occupy */
+	public OldLayoutElementMetrics setCellsY(int cellsY) {
+		if (this.cellsY==cellsY) return this;
+		this.cellsY = cellsY;
+		changed();
+		return this;
+	}
+	
+	/** Insets each side of this component inwards from the borders of its logical cell by a different amount */
+	public OldLayoutElementMetrics setPadding(int top, int right, int bottom, int left) {
+		if (paddingTop==top && paddingRight==right && paddingBottom==bottom && paddingLeft==left) return this;
+		paddingTop = top;
+		paddingRight = right;
+		paddingBottom = bottom;
+		paddingLeft = left;
+		changed();
+		return this;
+	}
+	
 	/** Insets all sides of this component inwards from the borders of its logical cell */
 	public void setPadding(int padding) {
-		paddingTop = padding;
-		paddingLeft = padding;
-		paddingRight = padding;
-		paddingBottom = padding;
+		setPadding(padding, padding, padding, padding);
+	}
+	
+	public OldLayoutElementMetrics setGrowType(GrowType horizontal, GrowType vertical) {
+		if (horizontalGrowType==horizontal && verticalGrowType==vertical) return this;
+		horizontalGrowType = horizontal;
+		verticalGrowType = vertical;
+		changed();
+		return this;
+	}
+	
+	public OldLayoutElementMetrics setHorizontalGrowType(GrowType growType) {
+		return setGrowType(growType, verticalGrowType);
+	}
+	
+	public OldLayoutElementMetrics setVerticalGrowType(GrowType growType) {
+		return setGrowType(horizontalGrowType, growType);
+	}
+	
+	public OldLayoutElementMetrics setAlignment(Alignment horizontal, Alignment vertical) {
+		if (horizontalAlignment==horizontal && verticalAlignment==vertical) return this;
+		horizontalAlignment = horizontal;
+		verticalAlignment = vertical;
+		changed();
+		return this;
+	}
+	
+	public OldLayoutElementMetrics setHorizontalAlignment(Alignment alignment) {
+		return setAlignment(alignment, verticalAlignment);
+	}
+	
+	public OldLayoutElementMetrics setVerticalAlignment(Alignment alignment) {
+		return setAlignment(horizontalAlignment, alignment);
+	}
+	
+	/** Replaces the fixed minimum width outright. Use -1 for no minimum. */
+	public OldLayoutElementMetrics setFixedMinX(int fixedMinX) {
+		if (this.fixedMinX==fixedMinX) return this;
+		this.fixedMinX = fixedMinX;
+		changed();
+		return this;
+	}
+	
+	/** Replaces the fixed minimum height outright. Use -1 for no minimum. */
+	public OldLayoutElementMetrics setFixedMinY(int fixedMinY) {
+		if (this.fixedMinY==fixedMinY) return this;
+		this.fixedMinY = fixedMinY;
+		changed();
+		return this;
+	}
+	
+	/** Replaces the minimum width relative to the parent, in percent, outright. Use -1 for no minimum. */
+	public OldLayoutElementMetrics setRelativeMinX(int relativeMinX) {
+		if (this.relativeMinX==relativeMinX) return this;
+		this.relativeMinX = relativeMinX;
+		changed();
+		return this;
+	}
+	
+	/** Replaces the minimum height relative to the parent, in percent, outright. Use -1 for no minimum. */
+	public OldLayoutElementMetrics setRelativeMinY(int relativeMinY) {
+		if (this.relativeMinY==relativeMinY) return this;
+		this.relativeMinY = relativeMinY;
+		changed();
+		return this;
+	}
+	
+	public OldLayoutElementMetrics setNaturalSize(int width, int height) {
+		if (naturalWidth==width && naturalHeight==height) return this;
+		naturalWidth = width;
+		naturalHeight = height;
+		changed();
+		return this;
 	}
 	
 	/** Add a constraint on this element to be at least the specified percent of the container's width. */
 	public void addMinPercentWidth(int percent) {
-		relativeMinX = Math.max(relativeMinX, percent); //Largest minimum size wins
+		setRelativeMinX(Math.max(relativeMinX, percent)); //Largest minimum size wins
 	}
 	
 	/** Add a constraint on this element to be at least the specified percent of the container's height. */
 	public void setMinPercentHeight(int percent) {
-		relativeMinY = Math.max(relativeMinX, percent); //Largest minimum size wins
+		setRelativeMinY(Math.max(relativeMinX, percent)); //Largest minimum size wins
 	}
 	
 	public void setMinimumWidth(int amount) {
-		fixedMinX = Math.max(fixedMinX, amount);
+		setFixedMinX(Math.max(fixedMinX, amount));
 	}
 	
 	public void setMinimumHeight(int amount) {
-		fixedMinY = Math.max(fixedMinY, amount);
+		setFixedMinY(Math.max(fixedMinY, amount));
 	}
 }
@@ -0,0 +1,235 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.management.ThreadMXBean;
+
+import blue.endless.splinter.Layout;
+import blue.endless.splinter.LayoutContext;
+import blue.endless.splinter.css.CssParseError;
+import blue.endless.splinter.css.PropertyKeys;
+import blue.endless.splinter.css.Style;
+import blue.endless.splinter.data.GrowType;
+import blue.endless.splinter.data.Size;
+import blue.endless.splinter.data.SizeUnit;
+import blue.endless.splinter.data.UnitConversionContext;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+
+/**
+ * Checks that hot paths stay within their allocation budgets once warmed up. Each scenario is a list of phases which
+ * together make up one operation; every phase is run until the JIT has settled, then its allocated bytes per call are
+ * counted with {@link ThreadMXBean#getCurrentThreadAllocatedBytes()}. If a scenario's total goes over its budget, every
+ * phase's share is printed so the culprit can be found, and the process exits with a failure status.
+ * 
+ * <p>Run by {@code gradlew test}, through the allocationTest task.
+ */
+public class AllocationTest {
+	private static final int WARMUP_ITERATIONS = 50_000;
+	private static final int MEASURED_ITERATIONS = 20_000;
+	/** Bytes per operation which are put down to the measurement itself rather than the code being measured */
+	private static final double TOLERANCE = 1.0;
+	
+	private static final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+	/** Results are stored here so that the JIT can't prove they're unused and skip allocating them */
+	private static Object sink;
+	
+	private record Phase(String name, Runnable operation) {}
+	
+	private static class Scenario {
+		private final String name;
+		private final double budget;
+		private final List<Phase> phases = new ArrayList<>();
+		
+		public Scenario(String name, double budget) {
+			this.name = name;
+			this.budget = budget;
+		}
+		
+		public Scenario phase(String name, Runnable operation) {
+			phases.add(new Phase(name, operation));
+			return this;
+		}
+	}
+	
+	public static void main(String... args) throws CssParseError {
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("Thread allocation counting isn't supported by this JVM; skipping allocation tests.");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		
+		List<Scenario> scenarios = List.of(
+				layoutScenario(),
+				contextFreeLayoutScenario(),
+				styleScenario(),
+				conversionScenario()
+				);
+		
+		int failures = 0;
+		for(Scenario scenario : scenarios) {
+			if (!run(scenario)) failures++;
+		}
+		
+		if (failures>0) {
+			System.out.println(failures+" of "+scenarios.size()+" allocation scenarios went over budget.");
+			System.exit(1);
+		}
+		System.out.println("All allocation scenarios are within budget.");
+	}
+	
+	/** Repeated layout of a tree which doesn't change between layouts. Once warmed up, this must not allocate at all. */
+	private static Scenario layoutScenario() {
+		Rectangle cached = buildTree(true);
+		Rectangle uncached = buildTree(false);
+		LayoutContext context = new LayoutContext();
+		
+		return new Scenario("Layout.layout, unchanged tree", 0)
+				.phase("Layout.measure", ()->Layout.measure(context, uncached))
+				.phase("Layout.layout, uncached containers", ()->Layout.layout(context, uncached, 0, 0, 800, 600, false))
+				.phase("Layout.layout, cached containers", ()->Layout.layout(context, cached, 0, 0, 800, 600, false))
+				.phase("Layout.relayout", ()->Layout.relayout(context, cached, 0, 0, 800, 600, false));
+	}
+	
+	/**
+	 * Layout through the overloads which don't take a LayoutContext. Each call builds a fresh context and grows its
+	 * scratch arrays from scratch, so callers which lay out every frame need to hold onto a context of their own; the
+	 * budget is what one throwaway context costs for this tree, and exists to catch it getting worse.
+	 */
+	private static Scenario contextFreeLayoutScenario() {
+		Rectangle cached = buildTree(true);
+		Rectangle uncached = buildTree(false);
+		
+		return new Scenario("Layout.layout, no LayoutContext", 12*1024)
+				.phase("Layout.layout, uncached containers", ()->Layout.layout(uncached, 0, 0, 800, 600, false))
+				.phase("Layout.layout, cached containers", ()->Layout.layout(cached, 0, 0, 800, 600, false))
+				.phase("Layout.relayout", ()->Layout.relayout(cached, 0, 0, 800, 600, false));
+	}
+	
+	/**
+	 * Property lookup on a Style which has already been parsed. Lookups currently deserialize the raw components every
+	 * time, so the budget is what that costs today: it should only ever go down.
+	 */
+	private static Scenario styleScenario() throws CssParseError {
+		Style style = Style.of("width: 120px; height: 50%; color: #336699; margin: 4px 8px;");
+		
+		return new Scenario("Style.get on a populated Style", 512)
+				.phase("Style.getRaw", ()->sink = style.getRaw(PropertyKeys.WIDTH))
+				.phase("Style.get(WIDTH), dimension", ()->sink = style.get(PropertyKeys.WIDTH))
+				.phase("Style.get(HEIGHT), percentage", ()->sink = style.get(PropertyKeys.HEIGHT));
+	}
+	
+	/** Unit conversion. Allocates the Size it returns, and nothing else. */
+	private static Scenario conversionScenario() {
+		UnitConversionContext conversion = new UnitConversionContext(16.0, 4/3.0, 800);
+		Size ems = Size.ems(2);
+		Size percent = Size.percent(25);
+		Size points = Size.points(12);
+		Size pixels = Size.pixels(200);
+		
+		return new Scenario("UnitConversionContext.convert", 4*32)
+				.phase("ems to pixels", ()->sink = conversion.convert(ems, SizeUnit.PIXELS))
+				.phase("percent to pixels", ()->sink = conversion.convert(percent, SizeUnit.PIXELS))
+				.phase("points to ems", ()->sink = conversion.convert(points, SizeUnit.EMS))
+				.phase("pixels to percent", ()->sink = conversion.convert(pixels, SizeUnit.PERCENT));
+	}
+	
+	private static boolean run(Scenario scenario) {
+		double[] bytesPerCall = new double[scenario.phases.size()];
+		double total = 0;
+		for(int i=0; i<bytesPerCall.length; i++) {
+			bytesPerCall[i] = measure(scenario.phases.get(i).operation());
+			total += bytesPerCall[i];
+		}
+		sink = null;
+		
+		boolean passed = total <= scenario.budget + TOLERANCE;
+		System.out.println(String.format("%s %s: %.1f bytes/op (budget %.0f)",
+				(passed) ? "PASS" : "FAIL", scenario.name, total, scenario.budget));
+		if (!passed) {
+			for(int i=0; i<bytesPerCall.length; i++) {
+				System.out.println(String.format("    %-40s %.1f bytes/op", scenario.phases.get(i).name(), bytesPerCall[i]));
+			}
+		}
+		return passed;
+	}
+	
+	private static double measure(Runnable operation) {
+		for(int i=0; i<WARMUP_ITERATIONS; i++) operation.run();
+		
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for(int i=0; i<MEASURED_ITERATIONS; i++) operation.run();
+		long after = threads.getCurrentThreadAllocatedBytes();
+		
+		return (after - before) / (double) MEASURED_ITERATIONS;
+	}
+	
+	/** Builds a small form: a header, a two-column body with spanning rows, and a nested button bar */
+	private static Rectangle buildTree(boolean cached) {
+		Rectangle root = (cached) ? new Rectangle() : new UncachedRectangle();
+		root.getLayoutContainerMetrics().setCellPadding(4);
+		
+		Rectangle header = new Rectangle();
+		root.add(header, 0, 0);
+		OldLayoutElementMetrics headerMetrics = root.getOldLayoutElementMetrics(header);
+		headerMetrics.setCellsX(2);
+		headerMetrics.setMinimumHeight(48);
+		
+		for(int i=0; i<6; i++) {
+			Rectangle label = new Rectangle();
+			root.add(label, 0, i+1);
+			OldLayoutElementMetrics labelMetrics = root.getOldLayoutElementMetrics(label);
+			labelMetrics.setFixedMinX(96);
+			labelMetrics.setHorizontalGrowType(GrowType.PACK);
+			
+			Rectangle field = new Rectangle();
+			root.add(field, 1, i+1);
+			root.getOldLayoutElementMetrics(field).setMinPercentHeight(5);
+		}
+		
+		Rectangle buttons = (cached) ? new Rectangle() : new UncachedRectangle();
+		buttons.getLayoutContainerMetrics().setCellPadding(8).setCollapseMargins(true);
+		root.add(buttons, 0, 7);
+		root.getOldLayoutElementMetrics(buttons).setCellsX(2);
+		for(int i=0; i<3; i++) {
+			Rectangle button = new Rectangle();
+			buttons.add(button, i, 0);
+			buttons.getOldLayoutElementMetrics(button).setMinimumWidth(80);
+		}
+		
+		return root;
+	}
+	
+	/** A Rectangle whose layouts aren't cached, so that every layout solves it from scratch */
+	private static class UncachedRectangle extends Rectangle {
+		public UncachedRectangle() {
+			layoutCache = null;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a generated workload to a file, so that it can be shared and loaded again elsewhere:
+ * 
+ * <pre>
+ * GenerateWorkload tree &lt;seed&gt; &lt;depth&gt; &lt;maxFanOut&gt; &lt;file&gt;
+ * GenerateWorkload declarations &lt;seed&gt; &lt;count&gt; &lt;file&gt;
+ * GenerateWorkload stylesheet &lt;seed&gt; &lt;rules&gt; &lt;file&gt;
+ * </pre>
+ * 
+ * Trees are written with {@link TreeFile}, and read back with {@link TreeFile#read(Path)}. CSS is written as-is.
+ */
+public class GenerateWorkload {
+	public static void main(String... args) throws IOException {
+		if (args.length<4) {
+			usage();
+			return;
+		}
+		
+		long seed = Long.parseLong(args[1]);
+		switch(args[0]) {
+			case "tree" -> {
+				if (args.length<5) {
+					usage();
+					return;
+				}
+				TreeGenerator generator = new TreeGenerator(seed)
+						.setDepth(Integer.parseInt(args[2]))
+						.setFanOut(1, Integer.parseInt(args[3]));
+				TreeFile.write(generator.generate(), generator.toString(), Path.of(args[4]));
+				System.out.println(generator);
+			}
+			case "declarations" -> {
+				StyleGenerator generator = new StyleGenerator(seed);
+				Files.writeString(Path.of(args[3]), generator.declarationList(Integer.parseInt(args[2])), StandardCharsets.UTF_8);
+				System.out.println(generator);
+			}
+			case "stylesheet" -> {
+				StyleGenerator generator = new StyleGenerator(seed);
+				Files.writeString(Path.of(args[3]), generator.stylesheet(Integer.parseInt(args[2])), StandardCharsets.UTF_8);
+				System.out.println(generator);
+			}
+			default -> usage();
+		}
+	}
+	
+	private static void usage() {
+		System.out.println("Usage:");
+		System.out.println("  GenerateWorkload tree <seed> <depth> <maxFanOut> <file>");
+		System.out.println("  GenerateWorkload declarations <seed> <count> <file>");
+		System.out.println("  GenerateWorkload stylesheet <seed> <rules> <file>");
+	}
+}
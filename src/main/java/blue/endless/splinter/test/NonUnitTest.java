@@ -36,6 +36,7 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 
 import blue.endless.splinter.Layout;
+import blue.endless.splinter.LayoutContext;
 import blue.endless.splinter.css.CssTokenizer;
 import blue.endless.splinter.css.PropertyKeys;
 import blue.endless.splinter.css.Style;
@@ -160,6 +161,7 @@ public static void main(String... args) {
 		private static final long serialVersionUID = -6448369368726067468L;
 		public Rectangle rootPanel;
 		public int scale = 1;
+		private final LayoutContext layoutContext = new LayoutContext();
 		
 		@Override
 		public void paint(Graphics g) {
@@ -168,7 +170,7 @@ public static void main(String... args) {
 			
 			BufferedImage frame = new BufferedImage(this.getWidth()/scale, this.getHeight()/scale, BufferedImage.TYPE_INT_ARGB);
 			rootPanel.setOwnLayoutValues(0, 0, frame.getWidth(), frame.getHeight());
-			Layout.layout(rootPanel, 0, 0, frame.getWidth(), frame.getHeight(), false);
+			Layout.relayout(layoutContext, rootPanel, 0, 0, frame.getWidth(), frame.getHeight(), false);
 			Graphics g2 = frame.getGraphics();
 			rootPanel.paint(g2);
 			g2.dispose();
@@ -0,0 +1,433 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import blue.endless.splinter.Layout;
+import blue.endless.splinter.LayoutContainer;
+import blue.endless.splinter.LayoutElement;
+import blue.endless.splinter.LayoutProgram;
+import blue.endless.splinter.ParametricLayout;
+import blue.endless.splinter.constraint.Constraint;
+import blue.endless.splinter.constraint.ConstraintLayout;
+import blue.endless.splinter.constraint.Expression;
+import blue.endless.splinter.constraint.Solver;
+import blue.endless.splinter.constraint.Strength;
+import blue.endless.splinter.constraint.Variable;
+import blue.endless.splinter.data.Axis;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+import blue.endless.splinter.widget.ConstraintContainerWidget;
+import blue.endless.splinter.widget.ContainerWidget;
+import blue.endless.splinter.widget.Widget;
+
+/**
+ * Checks for layout bugs which have been fixed once, so that they stay fixed. Each check builds a small tree, lays it
+ * out, changes something, and lays it out again; a check fails by throwing. If any check fails, every failure is
+ * printed and the process exits with a failure status.
+ * 
+ * <p>Run by {@code gradlew test}, through the regressionTest task.
+ */
+public class RegressionTest {
+	private record Check(String name, Runnable body) {}
+	
+	public static void main(String... args) {
+		List<Check> checks = new ArrayList<>();
+		checks.add(new Check("Layout.layout sees element metrics changed after a cached layout", RegressionTest::elementMetricsChange));
+		checks.add(new Check("Layout.layout sees container metrics changed after a cached layout", RegressionTest::containerMetricsChange));
+		checks.add(new Check("Natural sizes are measured again after a descendant's metrics change", RegressionTest::descendantMetricsRemeasure));
+		checks.add(new Check("Natural sizes are measured again after a child's axis metrics change", RegressionTest::axisMetricsRemeasure));
+		checks.add(new Check("LayoutProgram compiles again after metrics change", RegressionTest::programMetricsChange));
+		checks.add(new Check("LayoutProgram reports the element count of a changed tree, and rejects short bounds", RegressionTest::programBatchBounds));
+		checks.add(new Check("ParametricLayout rebuilds after metrics change, and stays exact when recentered", RegressionTest::parametricMetricsChange));
+		checks.add(new Check("ParametricLayout stores even splits in one piece, and percentages in fewer ints than a table", RegressionTest::parametricCompact));
+		checks.add(new Check("Hit-testing follows children moved by a later layout", RegressionTest::hitTestAfterMove));
+		checks.add(new Check("Metrics of a removed widget no longer invalidate its old container", RegressionTest::removedMetricsDetach));
+		checks.add(new Check("Layout.relayout lays out again when removeCollisions changes", RegressionTest::relayoutCollisionSetting));
+		checks.add(new Check("One edit to a ConstraintLayout costs a few pivots, including measuring", RegressionTest::constraintEditPivots));
+		checks.add(new Check("A rejected required constraint leaves the solver's last solution in place", RegressionTest::rejectedConstraintRollback));
+		
+		int failures = 0;
+		for(Check check : checks) {
+			try {
+				check.body().run();
+				System.out.println("PASS "+check.name());
+			} catch (AssertionError | RuntimeException ex) {
+				failures++;
+				System.out.println("FAIL "+check.name()+": "+ex.getMessage());
+			}
+		}
+		
+		if (failures>0) {
+			System.out.println(failures+" of "+checks.size()+" regression checks failed.");
+			System.exit(1);
+		}
+		System.out.println("All regression checks passed.");
+	}
+	
+	/** Changing a child's minimum size between two plain layouts at the same size must change the result. */
+	private static void elementMetricsChange() {
+		ContainerWidget root = new ContainerWidget();
+		Widget left = new Widget();
+		Widget right = new Widget();
+		root.add(left, 0, 0);
+		root.add(right, 1, 0);
+		
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expectBounds(root, left, 0, 0, 100, 100);
+		
+		root.getOldLayoutElementMetrics(left).setFixedMinX(150);
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expectBounds(root, left, 0, 0, 150, 100);
+		expectBounds(root, right, 150, 0, 50, 100);
+	}
+	
+	/** Changing the container's own metrics between two plain layouts at the same size must change the result. */
+	private static void containerMetricsChange() {
+		ContainerWidget root = new ContainerWidget();
+		Widget child = new Widget();
+		root.add(child, 0, 0);
+		
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expectBounds(root, child, 0, 0, 200, 100);
+		
+		root.getLayoutContainerMetrics().setCellPadding(10);
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expectBounds(root, child, 10, 10, 180, 80);
+	}
+	
+	/** A container's natural size must follow changes to the metrics of the elements inside it, at any depth. */
+	private static void descendantMetricsRemeasure() {
+		ContainerWidget root = new ContainerWidget();
+		ContainerWidget inner = new ContainerWidget();
+		Widget leaf = new Widget();
+		Widget sibling = new Widget();
+		root.add(inner, 0, 0);
+		root.add(sibling, 1, 0);
+		inner.add(leaf, 0, 0);
+		
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expectBounds(root, inner, 0, 0, 100, 100);
+		
+		inner.getOldLayoutElementMetrics(leaf).setFixedMinX(160);
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expect("natural width", 160, inner.getNaturalWidth());
+		expectBounds(root, inner, 0, 0, 160, 100);
+		expectBounds(root, sibling, 160, 0, 40, 100);
+	}
+	
+	/** Natural sizes set through a child's axis metrics must be picked up by the next layout at the same size. */
+	private static void axisMetricsRemeasure() {
+		ContainerWidget root = new ContainerWidget();
+		Widget left = new Widget();
+		Widget right = new Widget();
+		root.add(left, 0, 0);
+		root.add(right, 1, 0);
+		
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expectBounds(root, right, 100, 0, 100, 100);
+		
+		root.getChildMetrics(right, Axis.HORIZONTAL).setNaturalSize(170);
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expectBounds(root, left, 0, 0, 30, 100);
+		expectBounds(root, right, 30, 0, 170, 100);
+	}
+	
+	/** A compiled program copies metrics into its own buffers, so it must notice when the originals change. */
+	private static void programMetricsChange() {
+		ContainerWidget root = new ContainerWidget();
+		ContainerWidget inner = new ContainerWidget();
+		Widget leaf = new Widget();
+		Widget sibling = new Widget();
+		root.add(inner, 0, 0);
+		root.add(sibling, 1, 0);
+		inner.add(leaf, 0, 0);
+		
+		LayoutProgram program = new LayoutProgram(root, false);
+		program.layout(0, 0, 200, 100);
+		expectBounds(root, sibling, 100, 0, 100, 100);
+		
+		inner.getOldLayoutElementMetrics(leaf).setFixedMinX(160);
+		if (program.isValid()) throw new AssertionError("program still valid after a grandchild's metrics changed");
+		program.layout(0, 0, 200, 100);
+		expectBounds(root, inner, 0, 0, 160, 100);
+		expectBounds(root, sibling, 160, 0, 40, 100);
+		
+		root.getLayoutContainerMetrics().setCellPadding(10);
+		program.layout(0, 0, 200, 100);
+		int[] compiled = new int[4];
+		root.getLayoutValues(sibling, compiled);
+		Layout.layout(root, 0, 0, 200, 100, false);
+		expectBounds(root, sibling, compiled[0], compiled[1], compiled[2], compiled[3]);
+		expect("sibling y after cell padding", 10, compiled[1]);
+	}
+	
+	/**
+	 * Callers size batch bounds from getElementCount, so it must reflect children added since the program was compiled,
+	 * and a bounds array sized for the old tree must be rejected before anything is written into it.
+	 */
+	private static void programBatchBounds() {
+		ContainerWidget root = new ContainerWidget();
+		root.add(new Widget(), 0, 0);
+		root.add(new Widget(), 1, 0);
+		int[] widths = { 100, 200 };
+		int[] heights = { 50, 50 };
+		
+		LayoutProgram program = new LayoutProgram(root, false);
+		int[] stale = new int[widths.length * program.getElementCount() * 4];
+		
+		Widget added = new Widget();
+		root.add(added, 2, 0);
+		expect("element count after adding a child", 3, program.getElementCount());
+		expectSame("element added last", added, program.getElement(2));
+		
+		Arrays.fill(stale, -1);
+		try {
+			program.layout(widths, heights, stale);
+			throw new AssertionError("bounds sized for the old tree were accepted");
+		} catch (IllegalArgumentException ex) {
+			//Expected
+		}
+		for(int value : stale) expect("bounds after a rejected batch", -1, value);
+		
+		int[] bounds = new int[widths.length * program.getElementCount() * 4];
+		program.layout(widths, heights, bounds);
+		Layout.layout(root, 0, 0, widths[1], heights[1], false);
+		int[] expected = new int[4];
+		root.getLayoutValues(added, expected);
+		expect("added child's x at the second size", expected[0], bounds[(program.getElementCount() + 2)*4]);
+		expect("added child's width at the second size", expected[2], bounds[(program.getElementCount() + 2)*4 + 2]);
+	}
+	
+	/**
+	 * A ParametricLayout copies metrics when it's built, so it must notice when they change. It also keeps solved sizes
+	 * when its range moves, which must give the same results as solving them again.
+	 */
+	private static void parametricMetricsChange() {
+		ContainerWidget root = new ContainerWidget();
+		Widget[] children = new Widget[3];
+		for(int i=0; i<children.length; i++) {
+			children[i] = new Widget();
+			root.add(children[i], i, 0);
+		}
+		root.getOldLayoutElementMetrics(children[1]).setRelativeMinX(30);
+		
+		ParametricLayout parametric = new ParametricLayout(root, 100, 300, 50, 150, false);
+		expectSameAsLayout(root, parametric, children, 200, 100);
+		
+		root.getOldLayoutElementMetrics(children[0]).setFixedMinX(120);
+		if (parametric.isValid()) throw new AssertionError("parametric layout still valid after a child's metrics changed");
+		expectSameAsLayout(root, parametric, children, 200, 100);
+		
+		//Each of these is outside the range around the one before it, so the range moves and keeps part of what it solved
+		for(int width=350; width<=1000; width+=150) {
+			expectSameAsLayout(root, parametric, children, width, 100);
+			expectSameAsLayout(root, parametric, children, width-90, 100);
+		}
+	}
+	
+	/**
+	 * Evenly split columns, including the last one which takes the remainder, each fit one piece over the whole range.
+	 * Percentages which don't divide the container evenly take more pieces, but still far less than the solved table.
+	 */
+	private static void parametricCompact() {
+		ContainerWidget root = new ContainerWidget();
+		Widget[] children = new Widget[4];
+		for(int i=0; i<children.length; i++) {
+			children[i] = new Widget();
+			root.add(children[i], i, 0);
+		}
+		int sizes = ParametricLayout.MAX_RANGE;
+		int tableInts = sizes * children.length * 2;
+		
+		ParametricLayout parametric = new ParametricLayout(root, 0, sizes-1, 0, 0, false);
+		expect("breakpoints for even columns", 1, parametric.getBreakpoints(Axis.HORIZONTAL).length);
+		expect("pieces for even columns", children.length*2, parametric.getPieceCount(Axis.HORIZONTAL));
+		
+		root.getOldLayoutElementMetrics(children[0]).setRelativeMinX(30);
+		root.getOldLayoutElementMetrics(children[1]).setRelativeMinX(17);
+		parametric = new ParametricLayout(root, 0, sizes-1, 0, 0, false);
+		int pieceInts = parametric.getPieceCount(Axis.HORIZONTAL) * 7;
+		if (pieceInts*2>tableInts) throw new AssertionError("percentage columns took "+pieceInts+" ints, against a table of "+tableInts);
+		for(int width=0; width<sizes; width+=37) expectSameAsLayout(root, parametric, children, width, 0);
+	}
+	
+	private static void expectSameAsLayout(ContainerWidget root, ParametricLayout parametric, Widget[] children, int width, int height) {
+		int[] expected = new int[children.length*4];
+		int[] bounds = new int[4];
+		Layout.layout(root, 0, 0, width, height, false);
+		for(int i=0; i<children.length; i++) {
+			root.getLayoutValues(children[i], bounds);
+			System.arraycopy(bounds, 0, expected, i*4, 4);
+		}
+		
+		parametric.layout(0, 0, width, height);
+		for(int i=0; i<children.length; i++) {
+			expectBounds(root, children[i], expected[i*4], expected[i*4+1], expected[i*4+2], expected[i*4+3]);
+		}
+	}
+	
+	/**
+	 * The spatial index is updated in place as layout moves children, including children which had no area when it was
+	 * built, so queries after a relayout must see the new bounds without a rebuild having been forced.
+	 */
+	private static void hitTestAfterMove() {
+		ContainerWidget root = new ContainerWidget();
+		Widget[] rows = new Widget[40];
+		for(int i=0; i<rows.length; i++) {
+			rows[i] = new Widget();
+			root.add(rows[i], 0, i);
+			root.getOldLayoutElementMetrics(rows[i]).setFixedMinY(20);
+		}
+		
+		root.setViewport(0, 0, 100, 100);
+		Layout.relayout(root, 0, 0, 100, 800, false);
+		expectSame("row under (50, 30)", rows[1], root.getChildAt(50, 30));
+		expectSame("row under (50, 500)", null, root.getChildAt(50, 500));
+		
+		//Few enough rows move each time that the index is updated rather than rebuilt
+		root.setViewport(0, 400, 100, 60);
+		Layout.relayout(root, 0, 0, 100, 800, false);
+		expectSame("row under (50, 450)", rows[22], root.getChildAt(50, 450));
+		
+		Layout.relayout(root, 0, 0, 200, 800, false);
+		expectSame("row under (150, 410)", rows[20], root.getChildAt(150, 410));
+	}
+	
+	/** A widget's old metrics object must stop invalidating a container once the widget has been removed from it. */
+	private static void removedMetricsDetach() {
+		ContainerWidget root = new ContainerWidget();
+		Widget child = new Widget();
+		root.add(child, 0, 0);
+		OldLayoutElementMetrics metrics = root.getOldLayoutElementMetrics(child);
+		root.remove(child);
+		
+		int version = root.getLayoutVersion();
+		metrics.setFixedMinX(50);
+		expect("layout version", version, root.getLayoutVersion());
+	}
+	
+	/** A relayout at the same bounds but with a different removeCollisions setting must not be skipped. */
+	private static void relayoutCollisionSetting() {
+		ContainerWidget root = new ContainerWidget();
+		Widget first = new Widget();
+		Widget second = new Widget();
+		root.add(first, 0, 0);
+		root.add(second, 0, 0);
+		
+		Layout.relayout(root, 0, 0, 100, 100, false);
+		expectBounds(root, second, 0, 0, 100, 100);
+		
+		Layout.relayout(root, 0, 0, 100, 100, true);
+		expectBounds(root, first, 0, 0, 100, 100);
+		expectBounds(root, second, 0, 0, 0, 0);
+		
+		Layout.relayout(root, 0, 0, 100, 100, false);
+		expectBounds(root, second, 0, 0, 100, 100);
+	}
+	
+	/** A required constraint the solver refuses must not move the solution or break constraints added afterwards. */
+	private static void rejectedConstraintRollback() {
+		Solver solver = new Solver();
+		Variable a = new Variable("a");
+		solver.addConstraint(Constraint.greaterOrEqual(Expression.of(a), Expression.of(10)));
+		solver.updateVariables();
+		expect("a", 10, (int) Math.round(a.getValue()));
+		
+		try {
+			solver.addConstraint(Constraint.lessOrEqual(Expression.of(a), Expression.of(5)));
+			throw new AssertionError("conflicting required constraint was accepted");
+		} catch (IllegalStateException ex) {
+			//Expected
+		}
+		solver.updateVariables();
+		expect("a after the rejected constraint", 10, (int) Math.round(a.getValue()));
+		
+		solver.addConstraint(Constraint.greaterOrEqual(Expression.of(a), Expression.of(20)).withStrength(Strength.WEAK));
+		solver.updateVariables();
+		expect("a after a later weak constraint", 20, (int) Math.round(a.getValue()));
+	}
+	
+	/**
+	 * Measuring a ConstraintLayout mustn't drive its live solution to zero size and back, so laying out again after one
+	 * edit costs a few pivots rather than a re-optimization of every row.
+	 */
+	private static void constraintEditPivots() {
+		ConstraintContainerWidget root = new ConstraintContainerWidget();
+		Variable divider = new Variable("divider");
+		root.addEditVariable(divider, Strength.STRONG);
+		
+		Widget[] children = new Widget[30];
+		for(int i=0; i<children.length; i++) {
+			children[i] = new Widget();
+			root.add(children[i]);
+			ConstraintLayout.Bounds bounds = root.getBounds(children[i]);
+			root.addConstraint(Constraint.equal(Expression.of(bounds.top()), Expression.of(0)));
+			root.addConstraint(Constraint.equal(Expression.of(bounds.height()), Expression.of(root.getHeightVariable())));
+			root.addConstraint(Constraint.greaterOrEqual(Expression.of(bounds.width()), Expression.of(10)));
+			if (i==0) {
+				root.addConstraint(Constraint.equal(Expression.of(bounds.left()), Expression.of(0)));
+				root.addConstraint(Constraint.equal(Expression.of(bounds.width()), Expression.of(divider)));
+			} else {
+				root.addConstraint(Constraint.equal(Expression.of(bounds.left()), root.getBounds(children[i-1]).right()));
+				root.addConstraint(Constraint.equal(Expression.of(bounds.width()), Expression.of(40)).withStrength(Strength.WEAK));
+			}
+		}
+		root.addConstraint(Constraint.lessOrEqual(root.getBounds(children[children.length-1]).right(), Expression.of(root.getWidthVariable())));
+		Layout.layout(root, 0, 0, 2000, 100, false);
+		
+		ConstraintLayout layout = root.getConstraintLayout();
+		for(int value=100; value<=140; value+=10) {
+			long pivots = layout.getPivotCount();
+			root.suggestValue(divider, value);
+			Layout.layout(root, 0, 0, 2000, 100, false);
+			pivots = layout.getPivotCount() - pivots;
+			if (pivots>4) throw new AssertionError("one edit took "+pivots+" pivots");
+			expectBounds(root, children[0], 0, 0, value, 100);
+			expectBounds(root, children[1], value, 0, 40, 100);
+		}
+		expect("natural width", 300, root.getNaturalWidth());
+	}
+	
+	private static void expectBounds(LayoutContainer container, LayoutElement elem, int x, int y, int width, int height) {
+		int[] bounds = new int[4];
+		if (!container.getLayoutValues(elem, bounds)) throw new AssertionError("container doesn't report layout values");
+		expect("x", x, bounds[0]);
+		expect("y", y, bounds[1]);
+		expect("width", width, bounds[2]);
+		expect("height", height, bounds[3]);
+	}
+	
+	private static void expectSame(String what, Object expected, Object actual) {
+		if (expected!=actual) throw new AssertionError(what+" was "+actual+", expected "+expected);
+	}
+	
+	private static void expect(String what, int expected, int actual) {
+		if (expected!=actual) throw new AssertionError(what+" was "+actual+", expected "+expected);
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.test;
+
+import java.util.Random;
+
+/**
+ * Builds random CSS for benchmarks and fuzzing: declaration lists like the ones in inline styles, and whole stylesheets
+ * with nested rules and at-rules. Output is decided entirely by the seed, the settings, and the size asked for, so the
+ * same call on an identically set-up generator always produces the same text. Write the text out as-is to share it.
+ * 
+ * <p>Between them, the declarations and stylesheets contain source text for every {@link blue.endless.splinter.css.CssTokenType}.
+ * Bad strings and bad urls only appear as often as the bad token chance allows. Everything ends with a semicolon,
+ * closing brace or CDC, never in the middle of a value.
+ */
+public class StyleGenerator {
+	private static final String[] PROPERTIES = {
+			"width", "height", "min-width", "max-height", "margin", "padding", "color", "background", "background-image",
+			"font-family", "font-size", "border", "transform", "content", "opacity", "z-index", "display",
+			"grid-template-columns", "line-height", "--custom-property"
+	};
+	
+	private static final String[] KEYWORDS = { "auto", "none", "inherit", "block", "flex", "solid", "bold", "center" };
+	private static final String[] UNITS = { "px", "em", "rem", "pt", "vh", "deg" };
+	private static final String[] ELEMENTS = { "button", "div", "li", "a", "input", "h1", "span", "*" };
+	private static final String[] COMBINATORS = { " ", " > ", " + ", " ~ " };
+	
+	private long seed;
+	private int maxNesting = 4;
+	private double atRuleChance = 0.2;
+	private double badTokenChance = 0.02;
+	private double importantChance = 0.05;
+	
+	public StyleGenerator(long seed) {
+		this.seed = seed;
+	}
+	
+	public StyleGenerator setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+	
+	/** Sets how many levels deep style rules can be nested inside each other */
+	public StyleGenerator setMaxNesting(int maxNesting) {
+		this.maxNesting = maxNesting;
+		return this;
+	}
+	
+	/** Sets the chance that each top-level rule in a stylesheet is an at-rule instead of a style rule */
+	public StyleGenerator setAtRuleChance(double chance) {
+		this.atRuleChance = chance;
+		return this;
+	}
+	
+	/** Sets the chance that a string or url value is malformed */
+	public StyleGenerator setBadTokenChance(double chance) {
+		this.badTokenChance = chance;
+		return this;
+	}
+	
+	/** Sets the chance that a declaration is marked !important */
+	public StyleGenerator setImportantChance(double chance) {
+		this.importantChance = chance;
+		return this;
+	}
+	
+	/** Generates a list of declarations, separated and terminated by semicolons */
+	public String declarationList(int declarations) {
+		Random random = new Random(seed);
+		StringBuilder result = new StringBuilder();
+		for(int i=0; i<declarations; i++) {
+			if (i>0) result.append(' ');
+			appendDeclaration(random, result);
+		}
+		return result.toString();
+	}
+	
+	/** Generates a stylesheet with the given number of top-level rules, wrapped in CDO and CDC */
+	public String stylesheet(int rules) {
+		Random random = new Random(seed);
+		StringBuilder result = new StringBuilder("<!--\n");
+		for(int i=0; i<rules; i++) {
+			if (random.nextDouble()<atRuleChance) {
+				appendAtRule(random, result);
+			} else {
+				appendRule(random, result, 1 + random.nextInt(Math.max(1, maxNesting)), 0);
+			}
+		}
+		result.append("-->\n");
+		return result.toString();
+	}
+	
+	private void appendAtRule(Random random, StringBuilder result) {
+		switch(random.nextInt(4)) {
+			case 0 -> {
+				result.append("@import ");
+				appendUrl(random, result);
+				result.append(" screen, print;\n");
+			}
+			case 1 -> {
+				result.append("@media screen and (min-width: ").append(320 + random.nextInt(1600)).append("px) {\n");
+				appendRule(random, result, 1 + random.nextInt(Math.max(1, maxNesting)), 1);
+				result.append("}\n");
+			}
+			case 2 -> {
+				result.append("@supports (display: grid) {\n");
+				appendRule(random, result, 1, 1);
+				result.append("}\n");
+			}
+			default -> {
+				result.append("@font-face {\n\tfont-family: \"Face ").append(random.nextInt(100)).append("\";\n\tsrc: ");
+				appendUrl(random, result);
+				result.append(" format(\"woff2\");\n}\n");
+			}
+		}
+	}
+	
+	private void appendRule(Random random, StringBuilder result, int depth, int indent) {
+		String tabs = "\t".repeat(indent);
+		result.append(tabs);
+		appendSelector(random, result, indent>0 && random.nextBoolean());
+		if (random.nextInt(4)==0) {
+			result.append(", ");
+			appendSelector(random, result, false);
+		}
+		result.append(" {\n");
+		
+		int declarations = 1 + random.nextInt(6);
+		for(int i=0; i<declarations; i++) {
+			result.append(tabs).append('\t');
+			appendDeclaration(random, result);
+			result.append('\n');
+		}
+		if (depth>1) appendRule(random, result, depth-1, indent+1);
+		
+		result.append(tabs).append("}\n");
+	}
+	
+	private void appendSelector(Random random, StringBuilder result, boolean nested) {
+		if (nested) result.append("& ");
+		int parts = 1 + random.nextInt(3);
+		for(int i=0; i<parts; i++) {
+			if (i>0) result.append(COMBINATORS[random.nextInt(COMBINATORS.length)]);
+			result.append(ELEMENTS[random.nextInt(ELEMENTS.length)]);
+			switch(random.nextInt(5)) {
+				case 0 -> result.append(".item-").append(random.nextInt(50));
+				case 1 -> result.append("#section").append(random.nextInt(50));
+				case 2 -> result.append("[type=\"").append(KEYWORDS[random.nextInt(KEYWORDS.length)]).append("\"]");
+				case 3 -> result.append(":hover");
+				default -> {}
+			}
+		}
+	}
+	
+	private void appendDeclaration(Random random, StringBuilder result) {
+		result.append(PROPERTIES[random.nextInt(PROPERTIES.length)]).append(": ");
+		int values = 1 + ((random.nextInt(4)==0) ? random.nextInt(3) : 0);
+		for(int i=0; i<values; i++) {
+			if (i>0) result.append(' ');
+			appendValue(random, result);
+		}
+		if (random.nextDouble()<importantChance) result.append(" !important");
+		result.append(';');
+	}
+	
+	private void appendValue(Random random, StringBuilder result) {
+		switch(random.nextInt(11)) {
+			case 0 -> result.append(random.nextInt(1000)).append(UNITS[random.nextInt(UNITS.length)]);
+			case 1 -> result.append(random.nextInt(10)).append('.').append(random.nextInt(100)).append(UNITS[random.nextInt(UNITS.length)]);
+			case 2 -> result.append(random.nextInt(101)).append('%');
+			case 3 -> result.append(random.nextInt(100)).append('.').append(random.nextInt(10));
+			case 4 -> result.append('#').append(Integer.toHexString(0x100000 + random.nextInt(0xEFFFFF)));
+			case 5 -> result.append("rgba(").append(random.nextInt(256)).append(", ").append(random.nextInt(256))
+					.append(", ").append(random.nextInt(256)).append(", 0.").append(random.nextInt(10)).append(')');
+			case 6 -> result.append("calc(100% - ").append(random.nextInt(64)).append("px)");
+			case 7 -> appendUrl(random, result);
+			case 8 -> appendString(random, result);
+			case 9 -> result.append("\"Fira Sans\", sans-serif");
+			default -> result.append(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+		}
+	}
+	
+	private void appendString(Random random, StringBuilder result) {
+		if (random.nextDouble()<badTokenChance) {
+			//A newline inside a string makes it a bad string
+			result.append("\"unterminated ").append(random.nextInt(100)).append('\n');
+		} else {
+			char quote = random.nextBoolean() ? '"' : '\'';
+			result.append(quote).append("label ").append(random.nextInt(100)).append(quote);
+		}
+	}
+	
+	private void appendUrl(Random random, StringBuilder result) {
+		if (random.nextDouble()<badTokenChance) {
+			//Whitespace inside an unquoted url makes it a bad url
+			result.append("url(images/bad name").append(random.nextInt(100)).append(".png)");
+		} else {
+			result.append("url(images/image").append(random.nextInt(100)).append(".png)");
+		}
+	}
+	
+	/** Describes this generator's seed and settings, in enough detail to set up an identical generator by hand */
+	@Override
+	public String toString() {
+		return "StyleGenerator seed="+seed+" maxNesting="+maxNesting+" atRuleChance="+atRuleChance
+				+" badTokenChance="+badTokenChance+" importantChance="+importantChance;
+	}
+}
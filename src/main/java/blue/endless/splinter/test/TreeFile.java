@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import blue.endless.splinter.LayoutElement;
+import blue.endless.splinter.data.Alignment;
+import blue.endless.splinter.data.GrowType;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+import blue.endless.splinter.widget.ContainerWidget;
+import blue.endless.splinter.widget.Widget;
+
+/**
+ * Saves widget trees as text and loads them back, so that a tree which lays out slowly or wrongly can be attached to a
+ * bug report and reproduced exactly. Each line holds one element and its metrics within its parent; containers open a
+ * brace which is closed on a later line:
+ * 
+ * <pre>
+ * # Lines starting with a hash are comments
+ * container cellPadding=4 collapseMargins=false {
+ *     widget cell=0,0 span=2,1 fixedMin=64,-1 relativeMin=-1,-1 grow=PACK,FILL align=LEADING,CENTER padding=0,0,0,0 natural=-1,-1
+ *     container cell=0,1 span=1,1 fixedMin=-1,-1 relativeMin=-1,-1 grow=FILL,FILL align=CENTER,CENTER padding=0,0,0,0 natural=-1,-1 cellPadding=0 collapseMargins=true {
+ *     }
+ * }
+ * </pre>
+ * 
+ * <p>Pairs are x then y, and padding is top, right, bottom, left. Containers are loaded as Rectangles, and leaves as
+ * plain Widgets.
+ */
+public class TreeFile {
+	
+	public static void write(ContainerWidget root, String comment, Path path) throws IOException {
+		try(Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			write(root, comment, out);
+		}
+	}
+	
+	/**
+	 * Writes out a tree.
+	 * @param root the root of the tree
+	 * @param comment written at the top of the file, such as the settings the tree was generated with. May be null.
+	 * @param out where the tree is written to
+	 */
+	public static void write(ContainerWidget root, String comment, Appendable out) throws IOException {
+		if (comment!=null) {
+			for(String line : comment.split("\n")) {
+				out.append("# ").append(line).append('\n');
+			}
+		}
+		out.append("container");
+		appendContainer(root, out);
+		writeChildren(root, out, 1);
+		out.append("}\n");
+	}
+	
+	private static void writeChildren(ContainerWidget container, Appendable out, int depth) throws IOException {
+		for(LayoutElement elem : container.getLayoutChildren()) {
+			OldLayoutElementMetrics metrics = container.getOldLayoutElementMetrics(elem);
+			out.append("\t".repeat(depth));
+			out.append((elem instanceof ContainerWidget) ? "container" : "widget");
+			out.append(" cell=").append(pair(metrics.getCellX(), metrics.getCellY()));
+			out.append(" span=").append(pair(metrics.getCellsX(), metrics.getCellsY()));
+			out.append(" fixedMin=").append(pair(metrics.getFixedMinX(), metrics.getFixedMinY()));
+			out.append(" relativeMin=").append(pair(metrics.getRelativeMinX(), metrics.getRelativeMinY()));
+			out.append(" grow=").append(metrics.getHorizontalGrowType().name()).append(',').append(metrics.getVerticalGrowType().name());
+			out.append(" align=").append(metrics.getHorizontalAlignment().name()).append(',').append(metrics.getVerticalAlignment().name());
+			out.append(" padding=")
+				.append(pair(metrics.getPaddingTop(), metrics.getPaddingRight())).append(',')
+				.append(pair(metrics.getPaddingBottom(), metrics.getPaddingLeft()));
+			out.append(" natural=").append(pair(metrics.getNaturalWidth(), metrics.getNaturalHeight()));
+			
+			if (elem instanceof ContainerWidget child) {
+				appendContainer(child, out);
+				writeChildren(child, out, depth+1);
+				out.append("\t".repeat(depth)).append("}\n");
+			} else {
+				out.append('\n');
+			}
+		}
+	}
+	
+	private static void appendContainer(ContainerWidget container, Appendable out) throws IOException {
+		out.append(" cellPadding=").append(Integer.toString(container.getLayoutContainerMetrics().getCellPadding()));
+		out.append(" collapseMargins=").append(Boolean.toString(container.getLayoutContainerMetrics().getCollapseMargins()));
+		out.append(" {\n");
+	}
+	
+	private static String pair(int a, int b) {
+		return a + "," + b;
+	}
+	
+	public static Rectangle read(Path path) throws IOException {
+		try(BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return read(in);
+		}
+	}
+	
+	/**
+	 * Reads a tree written by {@link #write(ContainerWidget, String, Appendable)}.
+	 * @throws IOException if the tree can't be read, or is malformed
+	 */
+	public static Rectangle read(BufferedReader in) throws IOException {
+		Rectangle root = null;
+		ArrayDeque<Rectangle> open = new ArrayDeque<>();
+		
+		int lineNumber = 0;
+		String line;
+		while((line = in.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			
+			if (line.equals("}")) {
+				if (open.isEmpty()) throw new IOException("Line "+lineNumber+": Unmatched closing brace.");
+				open.pop();
+				continue;
+			}
+			
+			if (root!=null && open.isEmpty()) throw new IOException("Line "+lineNumber+": Only one root container is allowed.");
+			
+			String[] parts = line.split("\\s+");
+			boolean isContainer = parts[0].equals("container");
+			if (!isContainer && !parts[0].equals("widget")) throw new IOException("Line "+lineNumber+": Unknown element type \""+parts[0]+"\".");
+			boolean opensBlock = parts[parts.length-1].equals("{");
+			if (isContainer!=opensBlock) throw new IOException("Line "+lineNumber+": Containers, and only containers, must open a brace.");
+			
+			Map<String, String> values = new HashMap<>();
+			for(int i=1; i<parts.length - (opensBlock ? 1 : 0); i++) {
+				int split = parts[i].indexOf('=');
+				if (split<0) throw new IOException("Line "+lineNumber+": Expected key=value but found \""+parts[i]+"\".");
+				values.put(parts[i].substring(0, split), parts[i].substring(split+1));
+			}
+			
+			try {
+				Widget elem;
+				if (isContainer) {
+					Rectangle container = new Rectangle();
+					container.getLayoutContainerMetrics()
+						.setCellPadding(Integer.parseInt(require(values, "cellPadding")))
+						.setCollapseMargins(Boolean.parseBoolean(require(values, "collapseMargins")));
+					elem = container;
+				} else {
+					elem = new Widget();
+				}
+				
+				if (open.isEmpty()) {
+					root = (Rectangle) elem;
+				} else {
+					Rectangle parent = open.peek();
+					int[] cell = ints(require(values, "cell"), 2);
+					parent.add(elem, cell[0], cell[1]);
+					readMetrics(values, parent.getOldLayoutElementMetrics(elem));
+				}
+				
+				if (isContainer) open.push((Rectangle) elem);
+			} catch (IllegalArgumentException ex) {
+				throw new IOException("Line "+lineNumber+": "+ex.getMessage(), ex);
+			}
+		}
+		
+		if (root==null) throw new IOException("No root container was found.");
+		if (!open.isEmpty()) throw new IOException("Missing "+open.size()+" closing brace(s) at end of file.");
+		return root;
+	}
+	
+	private static void readMetrics(Map<String, String> values, OldLayoutElementMetrics metrics) {
+		int[] span = ints(require(values, "span"), 2);
+		metrics.setCellsX(span[0]);
+		metrics.setCellsY(span[1]);
+		int[] fixedMin = ints(require(values, "fixedMin"), 2);
+		metrics.setFixedMinX(fixedMin[0]);
+		metrics.setFixedMinY(fixedMin[1]);
+		int[] relativeMin = ints(require(values, "relativeMin"), 2);
+		metrics.setRelativeMinX(relativeMin[0]);
+		metrics.setRelativeMinY(relativeMin[1]);
+		String[] grow = strings(require(values, "grow"), 2);
+		metrics.setHorizontalGrowType(GrowType.valueOf(grow[0]));
+		metrics.setVerticalGrowType(GrowType.valueOf(grow[1]));
+		String[] align = strings(require(values, "align"), 2);
+		metrics.setHorizontalAlignment(Alignment.valueOf(align[0]));
+		metrics.setVerticalAlignment(Alignment.valueOf(align[1]));
+		int[] padding = ints(require(values, "padding"), 4);
+		metrics.setPadding(padding[0], padding[1], padding[2], padding[3]);
+		int[] natural = ints(require(values, "natural"), 2);
+		metrics.setNaturalSize(natural[0], natural[1]);
+	}
+	
+	private static String require(Map<String, String> values, String key) {
+		String result = values.get(key);
+		if (result==null) throw new IllegalArgumentException("Missing value for \""+key+"\".");
+		return result;
+	}
+	
+	private static String[] strings(String value, int count) {
+		String[] result = value.split(",");
+		if (result.length!=count) throw new IllegalArgumentException("Expected "+count+" comma-separated values but found \""+value+"\".");
+		return result;
+	}
+	
+	private static int[] ints(String value, int count) {
+		String[] parts = strings(value, count);
+		int[] result = new int[count];
+		for(int i=0; i<count; i++) result[i] = Integer.parseInt(parts[i]);
+		return result;
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.test;
+
+import java.util.Random;
+
+import blue.endless.splinter.data.Alignment;
+import blue.endless.splinter.data.GrowType;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
+import blue.endless.splinter.widget.ContainerWidget;
+import blue.endless.splinter.widget.Widget;
+
+/**
+ * Builds random widget trees for benchmarks and fuzzing. Everything about a tree is decided by the seed and the settings
+ * below, so the same generator always builds the same tree, and {@link #toString()} is enough to build it again.
+ * Containers are Rectangles and leaves are plain Widgets. Use {@link TreeFile} to save a tree so it can be shared.
+ * 
+ * <p>Children are put in random cells of their container's grid, so they can collide. Chances are between 0 and 1.
+ */
+public class TreeGenerator {
+	private long seed;
+	private int depth = 3;
+	private int minFanOut = 1;
+	private int maxFanOut = 6;
+	private double containerChance = 0.3;
+	private int maxGridSize = 4;
+	private double spanChance = 0.2;
+	private double fixedMinChance = 0.3;
+	private double relativeMinChance = 0.2;
+	private double packChance = 0.3;
+	private double leadingWeight = 1;
+	private double centerWeight = 1;
+	private double trailingWeight = 1;
+	private double paddingChance = 0.3;
+	private int maxPadding = 8;
+	private int maxCellPadding = 8;
+	private double collapseMarginsChance = 0.5;
+	
+	public TreeGenerator(long seed) {
+		this.seed = seed;
+	}
+	
+	public TreeGenerator setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+	
+	/** Sets how many levels of containers can appear below the root. At zero, the root holds only leaves. */
+	public TreeGenerator setDepth(int depth) {
+		this.depth = depth;
+		return this;
+	}
+	
+	/** Sets the smallest and largest number of children a container can have */
+	public TreeGenerator setFanOut(int min, int max) {
+		if (min<0 || max<min) throw new IllegalArgumentException("Fan-out range "+min+".."+max+" is invalid.");
+		this.minFanOut = min;
+		this.maxFanOut = max;
+		return this;
+	}
+	
+	/** Sets the chance that a child is itself a container, as long as the maximum depth hasn't been reached */
+	public TreeGenerator setContainerChance(double chance) {
+		this.containerChance = chance;
+		return this;
+	}
+	
+	/** Sets the largest number of columns or rows a container's grid can have */
+	public TreeGenerator setMaxGridSize(int cells) {
+		if (cells<1) throw new IllegalArgumentException("Grids must have at least one cell.");
+		this.maxGridSize = cells;
+		return this;
+	}
+	
+	/** Sets the chance, on each axis, that a child spans two cells instead of one */
+	public TreeGenerator setSpanChance(double chance) {
+		this.spanChance = chance;
+		return this;
+	}
+	
+	/** Sets the chances, on each axis, that a child has a fixed minimum size, and that it has a percentage minimum */
+	public TreeGenerator setMinimumChances(double fixed, double relative) {
+		this.fixedMinChance = fixed;
+		this.relativeMinChance = relative;
+		return this;
+	}
+	
+	/** Sets the chance, on each axis, that a child is PACK instead of FILL */
+	public TreeGenerator setPackChance(double chance) {
+		this.packChance = chance;
+		return this;
+	}
+	
+	/** Sets how often each alignment is picked, relative to the others */
+	public TreeGenerator setAlignmentWeights(double leading, double center, double trailing) {
+		if (leading<0 || center<0 || trailing<0 || leading+center+trailing<=0) throw new IllegalArgumentException("At least one alignment must have a positive weight, and none can be negative.");
+		this.leadingWeight = leading;
+		this.centerWeight = center;
+		this.trailingWeight = trailing;
+		return this;
+	}
+	
+	/** Sets the chance that a child has padding, and the most padding it can have on each side */
+	public TreeGenerator setPadding(double chance, int max) {
+		this.paddingChance = chance;
+		this.maxPadding = max;
+		return this;
+	}
+	
+	/** Sets the largest cell padding a container can have, and the chance that it collapses margins */
+	public TreeGenerator setContainerPadding(int maxCellPadding, double collapseMarginsChance) {
+		this.maxCellPadding = maxCellPadding;
+		this.collapseMarginsChance = collapseMarginsChance;
+		return this;
+	}
+	
+	public Rectangle generate() {
+		return generate(new Random(seed), depth);
+	}
+	
+	private Rectangle generate(Random random, int depth) {
+		Rectangle container = new Rectangle();
+		container.getLayoutContainerMetrics()
+			.setCellPadding(random.nextInt(maxCellPadding+1))
+			.setCollapseMargins(random.nextDouble()<collapseMarginsChance);
+		
+		int gridWidth = 1 + random.nextInt(maxGridSize);
+		int gridHeight = 1 + random.nextInt(maxGridSize);
+		int children = minFanOut + random.nextInt(maxFanOut-minFanOut+1);
+		for(int i=0; i<children; i++) {
+			Widget child = (depth>0 && random.nextDouble()<containerChance) ? generate(random, depth-1) : new Widget();
+			container.add(child, random.nextInt(gridWidth), random.nextInt(gridHeight));
+			randomize(random, container.getOldLayoutElementMetrics(child));
+		}
+		
+		return container;
+	}
+	
+	private void randomize(Random random, OldLayoutElementMetrics metrics) {
+		if (random.nextDouble()<spanChance) metrics.setCellsX(2);
+		if (random.nextDouble()<spanChance) metrics.setCellsY(2);
+		if (random.nextDouble()<fixedMinChance) metrics.setFixedMinX(random.nextInt(128));
+		if (random.nextDouble()<fixedMinChance) metrics.setFixedMinY(random.nextInt(128));
+		if (random.nextDouble()<relativeMinChance) metrics.setRelativeMinX(1 + random.nextInt(50));
+		if (random.nextDouble()<relativeMinChance) metrics.setRelativeMinY(1 + random.nextInt(50));
+		if (random.nextDouble()<packChance) metrics.setHorizontalGrowType(GrowType.PACK);
+		if (random.nextDouble()<packChance) metrics.setVerticalGrowType(GrowType.PACK);
+		metrics.setHorizontalAlignment(nextAlignment(random));
+		metrics.setVerticalAlignment(nextAlignment(random));
+		if (random.nextDouble()<paddingChance) {
+			int top = random.nextInt(maxPadding+1);
+			int right = random.nextInt(maxPadding+1);
+			int bottom = random.nextInt(maxPadding+1);
+			int left = random.nextInt(maxPadding+1);
+			metrics.setPadding(top, right, bottom, left);
+		}
+	}
+	
+	private Alignment nextAlignment(Random random) {
+		double pick = random.nextDouble() * (leadingWeight + centerWeight + trailingWeight);
+		if (pick<leadingWeight) return Alignment.LEADING;
+		if (pick<leadingWeight+centerWeight) return Alignment.CENTER;
+		return Alignment.TRAILING;
+	}
+	
+	/** Describes this generator's seed and settings, in enough detail to set up an identical generator by hand */
+	@Override
+	public String toString() {
+		return "TreeGenerator seed="+seed+" depth="+depth+" fanOut="+minFanOut+".."+maxFanOut
+				+" containerChance="+containerChance+" maxGridSize="+maxGridSize+" spanChance="+spanChance
+				+" fixedMinChance="+fixedMinChance+" relativeMinChance="+relativeMinChance+" packChance="+packChance
+				+" alignmentWeights="+leadingWeight+"/"+centerWeight+"/"+trailingWeight
+				+" paddingChance="+paddingChance+" maxPadding="+maxPadding
+				+" maxCellPadding="+maxCellPadding+" collapseMarginsChance="+collapseMarginsChance;
+	}
+}
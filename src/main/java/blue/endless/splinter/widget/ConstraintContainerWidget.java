@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-2023 Falkreon (Isaac Ellingson)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package blue.endless.splinter.widget;
+
+import blue.endless.splinter.LayoutStrategy;
+import blue.endless.splinter.constraint.Constraint;
+import blue.endless.splinter.constraint.ConstraintLayout;
+import blue.endless.splinter.constraint.Variable;
+
+/**
+ * A container whose children are positioned by constraints between their edges and sizes instead of on a grid. See
+ * {@link ConstraintLayout}. Every change made through this container invalidates its layout; changes made directly
+ * to the ConstraintLayout need to be followed by a call to {@link #invalidateLayout()}.
+ */
+public class ConstraintContainerWidget extends ContainerWidget {
+	protected ConstraintLayout constraints = new ConstraintLayout();
+	
+	/** Adds a child. Its grid cell is ignored, but it's only shown once it has bounds. */
+	public void add(Widget w) {
+		add(w, 0, 0);
+	}
+	
+	@Override
+	public void remove(Widget w) {
+		constraints.removeElement(w);
+		super.remove(w);
+	}
+	
+	/** Gets the variables for a child's position and size, relative to this container's origin, creating them if needed */
+	public ConstraintLayout.Bounds getBounds(Widget w) {
+		if (constraints.hasBounds(w)) return constraints.getBounds(w);
+		ConstraintLayout.Bounds result = constraints.getBounds(w);
+		invalidateLayout();
+		return result;
+	}
+	
+	public Variable getWidthVariable() { return constraints.getWidth(); }
+	public Variable getHeightVariable() { return constraints.getHeight(); }
+	
+	public void addConstraint(Constraint constraint) {
+		constraints.addConstraint(constraint);
+		invalidateLayout();
+	}
+	
+	public void removeConstraint(Constraint constraint) {
+		constraints.removeConstraint(constraint);
+		invalidateLayout();
+	}
+	
+	public void addEditVariable(Variable variable, double strength) {
+		constraints.addEditVariable(variable, strength);
+		invalidateLayout();
+	}
+	
+	public void removeEditVariable(Variable variable) {
+		constraints.removeEditVariable(variable);
+		invalidateLayout();
+	}
+	
+	public void suggestValue(Variable variable, double value) {
+		constraints.suggestValue(variable, value);
+		invalidateLayout();
+	}
+	
+	public ConstraintLayout getConstraintLayout() {
+		return constraints;
+	}
+	
+	@Override
+	public LayoutStrategy getLayoutStrategy() {
+		return constraints;
+	}
+}
@@ -24,26 +24,168 @@
 
 package blue.endless.splinter.widget;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
+import blue.endless.splinter.LayoutCache;
 import blue.endless.splinter.LayoutContainer;
+import blue.endless.splinter.SpatialIndex;
 import blue.endless.splinter.metrics.LayoutContainerMetrics;
 import blue.endless.splinter.metrics.LayoutElementAxisMetrics;
 import blue.endless.splinter.metrics.LayoutElementMetrics;
 import blue.endless.splinter.metrics.OldLayoutElementMetrics;
 import blue.endless.splinter.LayoutElement;
 import blue.endless.splinter.data.Axis;
+import blue.endless.splinter.data.Rect;
 
 public class ContainerWidget extends Widget implements LayoutContainer {
 	protected LayoutContainerMetrics metrics = new LayoutContainerMetrics();
 	protected HashMap<Widget, OldLayoutElementMetrics> oldChildren = new HashMap<>();
 	protected HashMap<Widget, LayoutElementMetrics> children = new HashMap<>();
+	/** The keys of children, in the order they were added */
+	protected ArrayList<Widget> childList = new ArrayList<>();
 	protected int naturalWidth = 0;
 	protected int naturalHeight = 0;
 	
+	/** True if children or their metrics have changed since this container was last laid out */
+	protected boolean layoutDirty = true;
+	protected int layoutX;
+	protected int layoutY;
+	protected int layoutWidth;
+	protected int layoutHeight;
+	protected boolean layoutRemovedCollisions;
+	protected int layoutVersion = 0;
+	protected int measuredVersion = -1;
+	protected LayoutCache layoutCache = new LayoutCache();
+	/** If non-null, the visible part of this container relative to its origin. Only children inside it are laid out. */
+	protected Rect viewport = null;
+	/**
+	 * Children by the bounds layout last gave them, for hit-testing. Children which move are updated in place as layout
+	 * sets their values; the whole index is only rebuilt, on the next query, after children are added or removed or
+	 * after too many moves.
+	 */
+	protected SpatialIndex<Widget> spatialIndex = new SpatialIndex<>();
+	protected boolean spatialIndexDirty = true;
+	/** Given to every metrics object this container reads during layout, so that changing any of them bumps layoutVersion */
+	private final Runnable metricsListener = this::invalidateLayout;
+	
+	public ContainerWidget() {
+		metrics.setChangeListener(metricsListener);
+	}
+	
 	public void add(Widget w, int x, int y) {
-		oldChildren.put(w, new OldLayoutElementMetrics(x,y));
-		children.put(w, new LayoutElementMetrics(x, y));
+		if (w.parent!=null && w.parent!=this) w.parent.remove(w);
+		if (w.oldParentMetrics!=null) w.oldParentMetrics.setChangeListener(null);
+		if (w.parentMetrics!=null) w.parentMetrics.setChangeListener(null);
+		w.parent = this;
+		w.oldParentMetrics = new OldLayoutElementMetrics(x,y);
+		w.oldParentMetrics.setChangeListener(metricsListener);
+		w.parentMetrics = new LayoutElementMetrics(x, y);
+		w.parentMetrics.setChangeListener(metricsListener);
+		oldChildren.put(w, w.oldParentMetrics);
+		if (children.put(w, w.parentMetrics)==null) {
+			w.childIndex = childList.size();
+			childList.add(w);
+		}
+		spatialIndexDirty = true;
+		invalidateLayout();
+	}
+	
+	public void remove(Widget w) {
+		if (children.remove(w)==null) return;
+		oldChildren.remove(w);
+		childList.remove(w.childIndex);
+		for(int i=w.childIndex; i<childList.size(); i++) {
+			childList.get(i).childIndex = i;
+		}
+		w.parent = null;
+		w.oldParentMetrics.setChangeListener(null);
+		w.oldParentMetrics = null;
+		w.parentMetrics.setChangeListener(null);
+		w.parentMetrics = null;
+		spatialIndexDirty = true;
+		invalidateLayout();
+	}
+	
+	@Override
+	public void invalidateLayout() {
+		layoutDirty = true;
+		layoutVersion++;
+		super.invalidateLayout();
+	}
+	
+	/**
+	 * Restricts layout of this container's children to the ones which intersect the given area, relative to this
+	 * container's origin. Moving the viewport doesn't change this container's layout version, so the solved grid stays
+	 * cached, and the next relayout only has to place the children which have become visible.
+	 */
+	public void setViewport(int x, int y, int width, int height) {
+		viewport = new Rect(x, y, width, height);
+		markLayoutDirty();
+	}
+	
+	/** Removes any viewport from this container, so that all its children are laid out again */
+	public void clearViewport() {
+		viewport = null;
+		markLayoutDirty();
+	}
+	
+	/**
+	 * Finds the innermost widget under the given point, searching this container's children and their descendants.
+	 * Coordinates are the same ones layout assigned to the widgets.
+	 * @return the deepest widget containing the point, or null if no child of this container contains it.
+	 */
+	public Widget getWidgetAt(int x, int y) {
+		Widget child = getChildAt(x, y);
+		if (child instanceof ContainerWidget container) {
+			Widget descendant = container.getWidgetAt(x, y);
+			if (descendant!=null) return descendant;
+		}
+		return child;
+	}
+	
+	/**
+	 * Finds the child of this container under the given point. If children overlap there, the one added last wins.
+	 * @return the child containing the point, or null if there is none.
+	 */
+	public Widget getChildAt(int x, int y) {
+		return getSpatialIndex().findAt(x, y);
+	}
+	
+	/**
+	 * Adds every descendant of this container which shares any area with the given rectangle to results, each
+	 * container ahead of its own children.
+	 */
+	public void getWidgetsIn(int x, int y, int width, int height, List<Widget> results) {
+		int start = results.size();
+		getSpatialIndex().findIntersecting(x, y, width, height, results);
+		int end = results.size();
+		for(int i=start; i<end; i++) {
+			if (results.get(i) instanceof ContainerWidget container) container.getWidgetsIn(x, y, width, height, results);
+		}
+	}
+	
+	protected SpatialIndex<Widget> getSpatialIndex() {
+		if (spatialIndexDirty) {
+			spatialIndex.clear();
+			for(int i=0; i<childList.size(); i++) {
+				Widget w = childList.get(i);
+				spatialIndex.add(w, w.x, w.y, w.width, w.height);
+			}
+			spatialIndex.build();
+			spatialIndexDirty = false;
+		}
+		return spatialIndex;
+	}
+	
+	/**
+	 * Flags this container and every container above it as needing layout, without changing any of their layout
+	 * versions, so that their cached layouts can still be used.
+	 */
+	protected void markLayoutDirty() {
+		layoutDirty = true;
+		if (parent!=null) parent.markLayoutDirty();
 	}
 	
 	
@@ -51,16 +193,18 @@ public class ContainerWidget extends Widget implements LayoutContainer {
 	//implements LayoutContainer {
 		@Override
 		public Iterable<? extends LayoutElement> getLayoutChildren() {
-			return children.keySet();
+			return childList;
 		}
 		
 		@Override
 		public OldLayoutElementMetrics getOldLayoutElementMetrics(LayoutElement elem) {
+			if (elem instanceof Widget w && w.parent==this) return w.oldParentMetrics;
 			return oldChildren.get(elem);
 		}
 		
 		@Override
 		public LayoutElementAxisMetrics getChildMetrics(LayoutElement elem, Axis axis) {
+			if (elem instanceof Widget w && w.parent==this) return w.parentMetrics.getAxis(axis);
 			return children.get(elem).getAxis(axis);
 		}
 		
@@ -72,10 +216,65 @@ public class ContainerWidget extends Widget implements LayoutContainer {
 		@Override
 		public void setLayoutValues(LayoutElement elem, int x, int y, int width, int height) {
 			if (elem instanceof Widget) {
-				((Widget)elem).setOwnLayoutValues(x, y, width, height);
+				Widget w = (Widget)elem;
+				if (!spatialIndexDirty && (w.x!=x || w.y!=y || w.width!=width || w.height!=height)) {
+					if (w.parent!=this || !spatialIndex.move(w.childIndex, x, y, width, height)) spatialIndexDirty = true;
+				}
+				w.setOwnLayoutValues(x, y, width, height);
 			}
 		}
 
+		@Override
+		public boolean getLayoutValues(LayoutElement elem, int[] out) {
+			if (!(elem instanceof Widget)) return false;
+			Widget w = (Widget)elem;
+			out[0] = w.x;
+			out[1] = w.y;
+			out[2] = w.width;
+			out[3] = w.height;
+			return true;
+		}
+		
+		@Override
+		public boolean needsLayout(int x, int y, int width, int height, boolean removeCollisions) {
+			return layoutDirty || x!=layoutX || y!=layoutY || width!=layoutWidth || height!=layoutHeight || removeCollisions!=layoutRemovedCollisions;
+		}
+		
+		@Override
+		public void setLayoutClean(int x, int y, int width, int height, boolean removeCollisions) {
+			layoutDirty = false;
+			layoutX = x;
+			layoutY = y;
+			layoutWidth = width;
+			layoutHeight = height;
+			layoutRemovedCollisions = removeCollisions;
+		}
+		
+		@Override
+		public boolean needsMeasure() {
+			return measuredVersion!=layoutVersion;
+		}
+		
+		@Override
+		public void setMeasureClean() {
+			measuredVersion = layoutVersion;
+		}
+		
+		@Override
+		public Rect getViewport() {
+			return viewport;
+		}
+		
+		@Override
+		public LayoutCache getLayoutCache() {
+			return layoutCache;
+		}
+		
+		@Override
+		public int getLayoutVersion() {
+			return layoutVersion;
+		}
+		
 		@Override
 		public void setNaturalWidth(int value) {
 			this.naturalWidth = value;
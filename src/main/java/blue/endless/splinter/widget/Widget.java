@@ -24,13 +24,39 @@
 
 package blue.endless.splinter.widget;
 
+import blue.endless.splinter.Layout;
 import blue.endless.splinter.LayoutElement;
+import blue.endless.splinter.metrics.LayoutElementMetrics;
+import blue.endless.splinter.metrics.OldLayoutElementMetrics;
 
 public class Widget implements LayoutElement {
+	protected ContainerWidget parent;
 	protected int x;
 	protected int y;
 	protected int width;
 	protected int height;
+	/** The metrics parent holds for this widget, so that parent can find them without a map lookup during layout */
+	OldLayoutElementMetrics oldParentMetrics;
+	LayoutElementMetrics parentMetrics;
+	/** This widget's position in parent's list of children, which is also its number in parent's spatial index */
+	int childIndex;
+	
+	/**
+	 * Gets the container this widget was added to, or null if it hasn't been added to one.
+	 */
+	public ContainerWidget getParent() {
+		return parent;
+	}
+	
+	/**
+	 * Marks this widget's layout as stale, so that this widget and every container above it will be re-solved during the
+	 * next {@link Layout#relayout(blue.endless.splinter.LayoutContainer, int, int, int, int, boolean) relayout}. The
+	 * setters on the metrics a container holds for this widget already call this; call it after changing anything else
+	 * which layout depends on.
+	 */
+	public void invalidateLayout() {
+		if (parent!=null) parent.invalidateLayout();
+	}
 	
 	public void setOwnLayoutValues(int x, int y, int width, int height) {
 		this.x = x;